@@ -0,0 +1,41 @@
+package com.scratchy.benchmark;
+
+import com.scratchy.csv.DeviceCsvWriter;
+import com.scratchy.model.Device;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkData {
+
+    private static final int MODEL_COUNT = 50;
+
+    private BenchmarkData() {
+    }
+
+    static List<Device> devices(int count) {
+        List<Device> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            devices.add(new Device("SN-" + i, "model" + (i % MODEL_COUNT),
+                    "Edge device number " + i));
+        }
+        return devices;
+    }
+
+    static byte[] csv(List<Device> devices) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+             DeviceCsvWriter csvWriter = new DeviceCsvWriter(writer)) {
+            csvWriter.writeAll(devices);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,126 @@
+package com.scratchy.benchmark;
+
+import com.scratchy.config.VirtualThreads;
+import com.scratchy.model.Device;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark of blocking WebClient calls, not of the application: no
+ * Spring context, Tomcat or controller is involved. {@code callers}
+ * concurrent tasks each block on one WebClient lookup, the way
+ * {@code DeviceServiceImpl} does, against a Reactor Netty stub that answers
+ * after {@code latencyMillis}. The platform executor is capped like
+ * Tomcat's default worker pool, the virtual one starts a virtual thread per
+ * task as the {@code loom} profile does. A score close to the latency means
+ * every call was in flight at once. The running service is measured by
+ * {@code LoadTest}.
+ * <p>
+ * {@code mvn -P benchmark test-compile exec:exec -Djmh.includes=BlockingWebClientBenchmark},
+ * the virtual executor needs Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BlockingWebClientBenchmark {
+
+    /**
+     * Default {@code server.tomcat.threads.max}.
+     */
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"1000", "10000"})
+    private int callers;
+
+    @Param({"50"})
+    private int latencyMillis;
+
+    private DisposableServer upstream;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        executor = "virtual".equals(threads)
+                ? VirtualThreads.newPerTaskExecutor("caller-")
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+
+        Duration latency = Duration.ofMillis(latencyMillis);
+        upstream = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/api/devices/{serialNumber}", (request, response) ->
+                        response.header("Content-Type", "application/json")
+                                .sendString(Mono.delay(latency).thenReturn("{\"id\":\""
+                                        + request.param("serialNumber")
+                                        + "\",\"model\":\"model0\",\"description\":\"\"}"))))
+                .bindNow();
+
+        // the pool must not be what queues the callers
+        connectionProvider = ConnectionProvider.builder("benchmark-upstream")
+                .maxConnections(callers)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + upstream.port())
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        upstream.disposeNow();
+        connectionProvider.disposeLater().block();
+    }
+
+    @Benchmark
+    public void blockingLookups(Blackhole blackhole) throws InterruptedException, ExecutionException {
+        List<Future<Device>> lookups = new ArrayList<>(callers);
+        for (int index = 0; index < callers; index++) {
+            String serialNumber = "SN-" + index;
+            lookups.add(executor.submit(() -> webClient.get()
+                    .uri("/api/devices/{serialNumber}", serialNumber)
+                    .retrieve()
+                    .bodyToMono(Device.class)
+                    .block()));
+        }
+        for (Future<Device> lookup : lookups) {
+            blackhole.consume(lookup.get());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.scratchy.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scratchy.codec.BinaryDeviceCodec;
+import com.scratchy.codec.DeviceCodec;
+import com.scratchy.codec.JsonDeviceCodec;
+import com.scratchy.model.Device;
+import nonapi.io.github.classgraph.json.JSONDeserializer;
+import nonapi.io.github.classgraph.json.JSONSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code device-topic} payloads in batch publish mode: encoding and decoding
+ * throughput in devices per second for the classgraph JSON the topic used
+ * to carry, the Jackson JSON codec and the binary codec. Encoding also
+ * reports {@code encode:encodedBytes}, the payload bytes written per second;
+ * divided by the devices per second of {@code encode} it gives the payload
+ * size per device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceCodecBenchmark {
+
+    /**
+     * Default {@code app.kafka.topic.batch-size}.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"classgraph", "json", "binary"})
+    private String codecName;
+
+    private DeviceCodec codec;
+    private List<Device> batch;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        switch (codecName) {
+            case "classgraph":
+                codec = new ClassgraphCodec();
+                break;
+            case "json":
+                codec = new JsonDeviceCodec(new ObjectMapper());
+                break;
+            default:
+                codec = new BinaryDeviceCodec();
+        }
+        batch = BenchmarkData.devices(BATCH_SIZE);
+        payload = codec.encodeAll(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public byte[] encode(PayloadBytes payloadBytes) {
+        byte[] encoded = codec.encodeAll(batch);
+        payloadBytes.encodedBytes += encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void decode(Blackhole blackhole) {
+        blackhole.consume(codec.decode(payload));
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PayloadBytes {
+
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            encodedBytes = 0;
+        }
+    }
+
+    /**
+     * The payloads {@code device-topic} carried before the codecs existed.
+     */
+    private static final class ClassgraphCodec implements DeviceCodec {
+
+        @Override
+        public String format() {
+            return "classgraph-json";
+        }
+
+        @Override
+        public byte[] encode(Device device) {
+            return JSONSerializer.serializeObject(device).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] encodeAll(List<Device> devices) {
+            return JSONSerializer.serializeObject(devices.toArray())
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public List<Device> decode(byte[] payload) {
+            return new ArrayList<>(Arrays.asList(JSONDeserializer.deserializeObject(Device[].class,
+                    new String(payload, StandardCharsets.UTF_8))));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.scratchy.benchmark;
+
+import com.scratchy.csv.DeviceCsvReader;
+import com.scratchy.csv.DeviceCsvWriter;
+import com.scratchy.model.Device;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload parsing and csv export rendering. Scores are whole files of
+ * {@code rows} rows per second, so multiply by {@code rows} for rows per
+ * second; the row count is a parameter and cannot feed
+ * {@code @OperationsPerInvocation}. Run with the gc profiler (the profile
+ * default) to get the allocation rate as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceCsvBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"1000"})
+    private int chunkSize;
+
+    private List<Device> devices;
+    private byte[] csv;
+
+    @Setup
+    public void setUp() {
+        devices = BenchmarkData.devices(rows);
+        csv = BenchmarkData.csv(devices);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        try (DeviceCsvReader reader = new DeviceCsvReader(new ByteArrayInputStream(csv))) {
+            List<Device> chunk;
+            while (!(chunk = reader.nextChunk(chunkSize)).isEmpty()) {
+                blackhole.consume(chunk);
+            }
+        }
+    }
+
+    @Benchmark
+    public void print() throws IOException {
+        try (DeviceCsvWriter csvWriter = new DeviceCsvWriter(Writer.nullWriter())) {
+            csvWriter.writeAll(devices);
+        }
+    }
+}
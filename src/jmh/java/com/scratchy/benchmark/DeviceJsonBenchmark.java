@@ -0,0 +1,56 @@
+package com.scratchy.benchmark;
+
+import com.scratchy.model.Device;
+import nonapi.io.github.classgraph.json.JSONSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kafka payload building with classgraph's {@code JSONSerializer}: the
+ * whole list as one array, as uploads used to be sent, against one payload
+ * per device as in record publish mode. Scores are whole lists of
+ * {@code rows} devices per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceJsonBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private List<Device> devices;
+
+    @Setup
+    public void setUp() {
+        devices = BenchmarkData.devices(rows);
+    }
+
+    @Benchmark
+    public String serializeList() {
+        return JSONSerializer.serializeObject(devices.toArray());
+    }
+
+    @Benchmark
+    public void serializePerDevice(Blackhole blackhole) {
+        for (Device device : devices) {
+            blackhole.consume(JSONSerializer.serializeObject(device));
+        }
+    }
+}
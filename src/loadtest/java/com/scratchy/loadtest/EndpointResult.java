@@ -0,0 +1,20 @@
+package com.scratchy.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EndpointResult {
+
+    private String endpoint;
+    private long requests;
+    private long errors;
+    private double throughput;
+    private double p50Millis;
+    private double p99Millis;
+    private double p999Millis;
+    private double maxMillis;
+}
@@ -0,0 +1,43 @@
+package com.scratchy.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies of one endpoint in microseconds, recorded without locking from
+ * every driver thread.
+ */
+class EndpointStats {
+
+    private final String endpoint;
+    private final Recorder latencies = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void record(long elapsedNanos, boolean success) {
+        latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    EndpointResult toResult(double seconds) {
+        Histogram histogram = latencies.getIntervalHistogram();
+        long requests = histogram.getTotalCount();
+        return new EndpointResult(endpoint, requests, errors.sum(), requests / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.scratchy.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Peak heap, GC pause time and bytes allocated by the service during a
+ * phase. Allocations are summed over live threads, leaving out the
+ * driver's own; threads that end within the phase are not counted.
+ */
+class JvmSampler {
+
+    static final String DRIVER_THREAD_PREFIX = "loadtest-";
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 50;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final AtomicLong heapPeak = new AtomicLong();
+
+    private ScheduledExecutorService sampler;
+    private Map<Long, Long> allocatedAtStart;
+    private long gcMillisAtStart;
+
+    void start() {
+        heapPeak.set(memory.getHeapMemoryUsage().getUsed());
+        allocatedAtStart = allocatedBytes();
+        gcMillisAtStart = gcMillis();
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable ->
+                new Thread(runnable, DRIVER_THREAD_PREFIX + "sampler"));
+        sampler.scheduleAtFixedRate(() -> heapPeak.accumulateAndGet(
+                memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    Usage stop() throws InterruptedException {
+        sampler.shutdown();
+        sampler.awaitTermination(1, TimeUnit.SECONDS);
+
+        long allocated = 0;
+        for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+            allocated += thread.getValue() - allocatedAtStart.getOrDefault(thread.getKey(), 0L);
+        }
+        return new Usage(heapPeak.get(), gcMillis() - gcMillisAtStart, allocated);
+    }
+
+    private Map<Long, Long> allocatedBytes() {
+        Map<Long, Long> allocated = new HashMap<>();
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info == null || isDriverThread(info.getThreadName())) {
+                continue;
+            }
+            long bytes = threads.getThreadAllocatedBytes(info.getThreadId());
+            if (bytes >= 0) {
+                allocated.put(info.getThreadId(), bytes);
+            }
+        }
+        return allocated;
+    }
+
+    private static boolean isDriverThread(String name) {
+        return name.startsWith(DRIVER_THREAD_PREFIX) || name.startsWith("HttpClient-");
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    static final class Usage {
+
+        final long heapPeakBytes;
+        final long gcPauseMillis;
+        final long allocatedBytes;
+
+        private Usage(long heapPeakBytes, long gcPauseMillis, long allocatedBytes) {
+            this.heapPeakBytes = heapPeakBytes;
+            this.gcPauseMillis = gcPauseMillis;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.scratchy.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop driver: a fixed number of users each send their next request
+ * as soon as the previous one is answered, for the length of a phase.
+ */
+@Slf4j
+public class LoadDriver {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final int users;
+
+    public LoadDriver(int users) {
+        this.users = users;
+    }
+
+    public PhaseResult run(String phase, List<Scenario> scenarios, Duration duration)
+            throws InterruptedException {
+        Map<Scenario, EndpointStats> stats = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            stats.put(scenario, new EndpointStats(scenario.getName()));
+        }
+        int totalWeight = scenarios.stream().mapToInt(Scenario::getWeight).sum();
+        AtomicInteger userNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(users, runnable -> new Thread(runnable,
+                JvmSampler.DRIVER_THREAD_PREFIX + "user-" + userNumber.incrementAndGet()));
+
+        log.info("Running phase " + phase + " with " + users + " users for " + duration);
+        JvmSampler sampler = new JvmSampler();
+        sampler.start();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + duration.toNanos();
+        for (int user = 0; user < users; user++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    Scenario scenario = pick(scenarios, random.nextInt(totalWeight));
+                    send(scenario, stats.get(scenario), random);
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(duration.toMillis() + TimeUnit.MINUTES.toMillis(1),
+                TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        JvmSampler.Usage usage = sampler.stop();
+
+        List<EndpointResult> endpoints = new ArrayList<>();
+        long requests = 0;
+        for (EndpointStats endpointStats : stats.values()) {
+            EndpointResult result = endpointStats.toResult(seconds);
+            endpoints.add(result);
+            requests += result.getRequests();
+        }
+        return new PhaseResult(phase, endpoints, usage.heapPeakBytes / (1024.0 * 1024.0),
+                usage.gcPauseMillis,
+                requests == 0 ? 0 : usage.allocatedBytes / 1024.0 / requests);
+    }
+
+    private void send(Scenario scenario, EndpointStats stats, ThreadLocalRandom random) {
+        HttpRequest request = scenario.request(random);
+        long startedAt = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            stats.record(System.nanoTime() - startedAt, response.statusCode() < 400);
+            scenario.completed(request, response);
+        } catch (IOException exception) {
+            stats.record(System.nanoTime() - startedAt, false);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Scenario pick(List<Scenario> scenarios, int ticket) {
+        for (Scenario scenario : scenarios) {
+            ticket -= scenario.getWeight();
+            if (ticket < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+}
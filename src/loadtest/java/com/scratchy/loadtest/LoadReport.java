@@ -0,0 +1,107 @@
+package com.scratchy.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Results of a run, written as json so that the next run can be held
+ * against it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadReport {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LoadTestSettings settings;
+    private List<PhaseResult> phases;
+
+    public static LoadReport read(Path path) throws IOException {
+        return OBJECT_MAPPER.readValue(path.toFile(), LoadReport.class);
+    }
+
+    public void write(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        OBJECT_MAPPER.writeValue(path.toFile(), this);
+    }
+
+    public String toTable() {
+        StringBuilder table = new StringBuilder(String.format(
+                "%-16s %-14s %9s %7s %10s %9s %9s %9s %9s%n", "phase", "endpoint",
+                "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (PhaseResult phase : phases) {
+            for (EndpointResult endpoint : phase.getEndpoints()) {
+                if (endpoint.getRequests() == 0) {
+                    continue;
+                }
+                table.append(String.format("%-16s %-14s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                        phase.getPhase(), endpoint.getEndpoint(), endpoint.getRequests(),
+                        endpoint.getErrors(), endpoint.getThroughput(), endpoint.getP50Millis(),
+                        endpoint.getP99Millis(), endpoint.getP999Millis(), endpoint.getMaxMillis()));
+            }
+            table.append(String.format(
+                    "%-16s heap peak %.1f MB, gc pause %d ms, %.1f KB allocated per request%n",
+                    phase.getPhase(), phase.getHeapPeakMegabytes(), phase.getGcPauseMillis(),
+                    phase.getAllocatedKilobytesPerRequest()));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Endpoints whose throughput dropped, or whose p99 latency or allocation
+     * per request grew, by more than {@code tolerance} against
+     * {@code baseline}, and any endpoint that started failing.
+     */
+    public List<String> regressionsAgainst(LoadReport baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (PhaseResult phase : phases) {
+            Optional<PhaseResult> basePhase = baseline.getPhases().stream()
+                    .filter(candidate -> candidate.getPhase().equals(phase.getPhase()))
+                    .findFirst();
+            if (basePhase.isEmpty()) {
+                continue;
+            }
+            if (phase.getAllocatedKilobytesPerRequest()
+                    > basePhase.get().getAllocatedKilobytesPerRequest() * (1 + tolerance)) {
+                regressions.add(String.format("%s: allocation per request %.1f KB, was %.1f KB",
+                        phase.getPhase(), phase.getAllocatedKilobytesPerRequest(),
+                        basePhase.get().getAllocatedKilobytesPerRequest()));
+            }
+            for (EndpointResult endpoint : phase.getEndpoints()) {
+                basePhase.get().getEndpoints().stream()
+                        .filter(candidate -> candidate.getEndpoint().equals(endpoint.getEndpoint()))
+                        .findFirst()
+                        .ifPresent(base -> compare(phase.getPhase(), endpoint, base, tolerance, regressions));
+            }
+        }
+        return regressions;
+    }
+
+    private static void compare(String phase, EndpointResult endpoint, EndpointResult base,
+                                double tolerance, List<String> regressions) {
+        String name = phase + "/" + endpoint.getEndpoint();
+        if (endpoint.getThroughput() < base.getThroughput() * (1 - tolerance)) {
+            regressions.add(String.format("%s: throughput %.1f req/s, was %.1f req/s",
+                    name, endpoint.getThroughput(), base.getThroughput()));
+        }
+        if (endpoint.getP99Millis() > base.getP99Millis() * (1 + tolerance)) {
+            regressions.add(String.format("%s: p99 %.2f ms, was %.2f ms",
+                    name, endpoint.getP99Millis(), base.getP99Millis()));
+        }
+        if (endpoint.getErrors() > 0 && base.getErrors() == 0) {
+            regressions.add(String.format("%s: %d errors, had none", name, endpoint.getErrors()));
+        }
+    }
+}
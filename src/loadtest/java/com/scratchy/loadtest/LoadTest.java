@@ -0,0 +1,136 @@
+package com.scratchy.loadtest;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.scratchy.EdgeApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the service in-process against a stub upstream, an embedded Kafka
+ * broker, GreenMail and a stub token issuer, then drives every scenario on
+ * its own and all of them mixed, after a warmup.
+ * <p>
+ * The report is written to {@code loadtest.report}. Given
+ * {@code loadtest.baseline}, the run fails when any endpoint regressed by
+ * more than {@code loadtest.tolerance} against it.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private static final String REALM = "SpringBootApp";
+    private static final String TOPIC = "device-topic";
+    private static final int PARTITIONS = 12;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        Path reportPath = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+        String baselinePath = System.getProperty("loadtest.baseline");
+        double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.1"));
+
+        LoadReport report;
+        EmbeddedKafkaBroker kafka = new EmbeddedKafkaBroker(1, false, PARTITIONS, TOPIC);
+        GreenMail smtp = new GreenMail(new ServerSetup(freePort(), "localhost", ServerSetup.PROTOCOL_SMTP));
+        try (UpstreamStub upstream = UpstreamStub.start(settings.getDevices(),
+                settings.getUpstreamLatencyMillis());
+             TokenIssuerStub issuer = TokenIssuerStub.start(REALM)) {
+            kafka.afterPropertiesSet();
+            smtp.setUser("username", "password");
+            smtp.start();
+
+            String[] appArgs = appProperties(settings, upstream, issuer, kafka, smtp).entrySet().stream()
+                    .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                    .toArray(String[]::new);
+            try (ConfigurableApplicationContext app = new SpringApplicationBuilder(EdgeApplication.class)
+                    .profiles("dev")
+                    .bannerMode(Banner.Mode.OFF)
+                    .run(appArgs)) {
+                report = run(settings, app, issuer);
+            }
+        } finally {
+            smtp.stop();
+            kafka.destroy();
+        }
+
+        report.write(reportPath);
+        System.out.print(report.toTable());
+        System.out.println("Report written to " + reportPath.toAbsolutePath());
+
+        int status = 0;
+        if (baselinePath != null && !baselinePath.isBlank()) {
+            List<String> regressions = report.regressionsAgainst(LoadReport.read(Path.of(baselinePath)),
+                    tolerance);
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            System.out.println(regressions.size() + " regressions against " + baselinePath
+                    + " with tolerance " + tolerance);
+            status = regressions.isEmpty() ? 0 : 1;
+        }
+        // the broker and client libraries leave non-daemon threads behind
+        System.exit(status);
+    }
+
+    private static LoadReport run(LoadTestSettings settings, ConfigurableApplicationContext app,
+                                  TokenIssuerStub issuer) throws InterruptedException {
+        int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        String token = issuer.issue("loadtest", List.of("user", "admin"), Duration.ofHours(12));
+        List<Scenario> scenarios = Scenarios.all(URI.create("http://localhost:" + port), token, settings);
+        LoadDriver driver = new LoadDriver(settings.getUsers());
+        Duration duration = Duration.ofSeconds(settings.getDurationSeconds());
+
+        driver.run("warmup", scenarios, Duration.ofSeconds(settings.getWarmupSeconds()));
+        List<PhaseResult> phases = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            phases.add(driver.run(scenario.getName(), List.of(scenario), duration));
+        }
+        phases.add(driver.run("mixed", scenarios, duration));
+        return new LoadReport(settings, phases);
+    }
+
+    /**
+     * Passed as command line arguments, since those override the profile's
+     * properties files.
+     */
+    private static Map<String, String> appProperties(LoadTestSettings settings, UpstreamStub upstream,
+                                                     TokenIssuerStub issuer, EmbeddedKafkaBroker kafka,
+                                                     GreenMail smtp) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("app.env.url", "http://localhost:");
+        properties.put("app.env.port", String.valueOf(upstream.getPort()));
+        properties.put("app.kafka.topic.name", TOPIC);
+        properties.put("app.kafka.topic.partitions", String.valueOf(PARTITIONS));
+        properties.put("spring.kafka.bootstrap-servers", kafka.getBrokersAsString());
+        properties.put("spring.mail.host", "localhost");
+        properties.put("spring.mail.port", String.valueOf(smtp.getSmtp().getPort()));
+        properties.put("spring.mail.properties.mail.smtp.starttls.enable", "false");
+        properties.put("keycloak.auth-server-url", issuer.getAuthServerUrl());
+        properties.put("keycloak.realm", REALM);
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.scratchy.loadtest", "INFO");
+        properties.putAll(settings.getAppProperties());
+        return properties;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.scratchy.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Knobs of a load test run, read from {@code loadtest.*} system properties.
+ * {@code loadtest.app} holds comma separated {@code property=value} pairs
+ * passed on to the service, so one run can be compared against another
+ * with a setting switched, e.g. {@code -Dloadtest.app=app.threads.virtual=true}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadTestSettings {
+
+    private int users;
+    private int warmupSeconds;
+    private int durationSeconds;
+    private int devices;
+    private int upstreamLatencyMillis;
+    private int uploadRows;
+    private Map<String, String> appProperties;
+
+    public static LoadTestSettings fromSystemProperties() {
+        Map<String, String> appProperties = new TreeMap<>();
+        for (String property : System.getProperty("loadtest.app", "").split(",")) {
+            int separator = property.indexOf('=');
+            if (separator > 0) {
+                appProperties.put(property.substring(0, separator).trim(),
+                        property.substring(separator + 1).trim());
+            }
+        }
+
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.users", 64),
+                Integer.getInteger("loadtest.warmup", 15),
+                Integer.getInteger("loadtest.duration", 30),
+                Integer.getInteger("loadtest.devices", 10_000),
+                Integer.getInteger("loadtest.upstream-latency", 5),
+                Integer.getInteger("loadtest.upload-rows", 1_000),
+                appProperties);
+    }
+}
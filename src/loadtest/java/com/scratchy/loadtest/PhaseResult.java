@@ -0,0 +1,23 @@
+package com.scratchy.loadtest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One phase of a run. The JVM figures cover the whole process, so they are
+ * attributable to an endpoint only in the phases that drive it alone.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhaseResult {
+
+    private String phase;
+    private List<EndpointResult> endpoints;
+    private double heapPeakMegabytes;
+    private long gcPauseMillis;
+    private double allocatedKilobytesPerRequest;
+}
@@ -0,0 +1,37 @@
+package com.scratchy.loadtest;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One kind of request the driver sends, picked in proportion to its weight
+ * within a phase.
+ */
+public abstract class Scenario {
+
+    private final String name;
+    private final int weight;
+
+    protected Scenario(String name, int weight) {
+        this.name = name;
+        this.weight = weight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public abstract HttpRequest request(ThreadLocalRandom random);
+
+    /**
+     * Called with every response, for scenarios that carry state from one
+     * request to the next.
+     */
+    public void completed(HttpRequest request, HttpResponse<?> response) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.scratchy.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The traffic mix: single and bulk lookups, polled model listings in both
+ * formats and csv uploads, all as an authenticated user.
+ */
+public final class Scenarios {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int LOOKUP_SIZE = 50;
+
+    private Scenarios() {
+    }
+
+    public static List<Scenario> all(URI baseUri, String token, LoadTestSettings settings) {
+        int devices = settings.getDevices();
+        return List.of(
+                new Scenario("device", 50) {
+                    @Override
+                    public HttpRequest request(ThreadLocalRandom random) {
+                        return get(baseUri, token, "/rest/devices/SN-" + random.nextInt(devices));
+                    }
+                },
+                new Scenario("lookup", 10) {
+                    @Override
+                    public HttpRequest request(ThreadLocalRandom random) {
+                        StringBuilder ids = new StringBuilder("[");
+                        for (int index = 0; index < LOOKUP_SIZE; index++) {
+                            ids.append(index == 0 ? "\"" : ",\"").append("SN-")
+                                    .append(random.nextInt(devices)).append('"');
+                        }
+                        return authorized(baseUri, token, "/rest/devices/lookup")
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(ids.append(']').toString()))
+                                .build();
+                    }
+                },
+                new PollingScenario("json-by-model", 15, baseUri, token, "/rest/devices/json/"),
+                new PollingScenario("csv-by-model", 15, baseUri, token, "/rest/devices/csv/"),
+                new UploadScenario(2, baseUri, token, settings));
+    }
+
+    private static HttpRequest get(URI baseUri, String token, String path) {
+        return authorized(baseUri, token, path).GET().build();
+    }
+
+    private static HttpRequest.Builder authorized(URI baseUri, String token, String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(TIMEOUT)
+                .header("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * Polls model listings the way dashboards do, sending back the last
+     * ETag it got for the model half of the time.
+     */
+    private static final class PollingScenario extends Scenario {
+
+        private final URI baseUri;
+        private final String token;
+        private final String path;
+        private final Map<URI, String> eTags = new ConcurrentHashMap<>();
+
+        private PollingScenario(String name, int weight, URI baseUri, String token, String path) {
+            super(name, weight);
+            this.baseUri = baseUri;
+            this.token = token;
+            this.path = path;
+        }
+
+        @Override
+        public HttpRequest request(ThreadLocalRandom random) {
+            HttpRequest.Builder request = authorized(baseUri, token,
+                    path + "model" + random.nextInt(UpstreamStub.MODEL_COUNT)).GET();
+            HttpRequest unconditional = request.copy().build();
+            String eTag = eTags.get(unconditional.uri());
+            return eTag != null && random.nextBoolean()
+                    ? request.header("If-None-Match", eTag).build()
+                    : unconditional;
+        }
+
+        @Override
+        public void completed(HttpRequest request, HttpResponse<?> response) {
+            response.headers().firstValue("ETag").ifPresent(eTag -> eTags.put(request.uri(), eTag));
+        }
+    }
+
+    /**
+     * Uploads a csv of existing serial numbers with fresh descriptions, so
+     * every upload has new content and is published in full.
+     */
+    private static final class UploadScenario extends Scenario {
+
+        private final URI baseUri;
+        private final String token;
+        private final int rows;
+        private final int devices;
+        private final AtomicLong uploads = new AtomicLong();
+
+        private UploadScenario(int weight, URI baseUri, String token, LoadTestSettings settings) {
+            super("upload", weight);
+            this.baseUri = baseUri;
+            this.token = token;
+            this.rows = Math.min(settings.getUploadRows(), settings.getDevices());
+            this.devices = settings.getDevices();
+        }
+
+        @Override
+        public HttpRequest request(ThreadLocalRandom random) {
+            long upload = uploads.incrementAndGet();
+            String boundary = "loadtest-" + UUID.randomUUID();
+            StringBuilder body = new StringBuilder()
+                    .append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"file\"; filename=\"fleet-")
+                    .append(upload).append(".csv\"\r\n")
+                    .append("Content-Type: text/csv\r\n\r\n")
+                    .append("id,model,description\r\n");
+            int first = random.nextInt(devices);
+            for (int row = 0; row < rows; row++) {
+                int index = (first + row) % devices;
+                body.append("SN-").append(index).append(",model").append(index % UpstreamStub.MODEL_COUNT)
+                        .append(",Upload ").append(upload).append(" row ").append(row).append("\r\n");
+            }
+            body.append("--").append(boundary).append("--\r\n");
+
+            return authorized(baseUri, token, "/rest/devices")
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.scratchy.loadtest;
+
+import com.scratchy.security.RealmKeys;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stand-in for the Keycloak realm: publishes one RS256 signing key at the
+ * realm's certs endpoint and signs access tokens with it, so bearer tokens
+ * are verified the same way as against a real realm.
+ */
+public class TokenIssuerStub implements AutoCloseable {
+
+    private final MockWebServer server = new MockWebServer();
+    private final RealmKeys keys = new RealmKeys(UUID.randomUUID().toString());
+    private final String realm;
+
+    private TokenIssuerStub(String realm) {
+        this.realm = realm;
+    }
+
+    public static TokenIssuerStub start(String realm) throws IOException {
+        TokenIssuerStub stub = new TokenIssuerStub(realm);
+        String certsPath = "/auth/realms/" + realm + "/protocol/openid-connect/certs";
+        String certs = stub.keys.certs();
+        stub.server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return certsPath.equals(request.getPath())
+                        ? new MockResponse().setHeader("Content-Type", "application/json").setBody(certs)
+                        : new MockResponse().setResponseCode(404);
+            }
+        });
+        stub.server.start();
+        return stub;
+    }
+
+    public String getAuthServerUrl() {
+        return "http://localhost:" + server.getPort() + "/auth";
+    }
+
+    public String issue(String userName, List<String> roles, Duration lifetime) {
+        Instant now = Instant.now();
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("iss", getAuthServerUrl() + "/realms/" + realm);
+        claims.put("sub", UUID.nameUUIDFromBytes(userName.getBytes(StandardCharsets.UTF_8)).toString());
+        claims.put("typ", "Bearer");
+        claims.put("azp", "login-app");
+        claims.put("iat", now.getEpochSecond());
+        claims.put("exp", now.plus(lifetime).getEpochSecond());
+        claims.put("preferred_username", userName);
+        claims.put("email", userName + "@localhost");
+        claims.put("realm_access", Map.of("roles", roles));
+        return keys.sign(claims);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
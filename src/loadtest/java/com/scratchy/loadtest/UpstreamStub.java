@@ -0,0 +1,128 @@
+package com.scratchy.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scratchy.model.Device;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the {@code /api/devices} upstream serving a fixed fleet of
+ * {@code SN-<n>} devices spread over {@value #MODEL_COUNT} models, every
+ * answer delayed by a fixed latency.
+ */
+public class UpstreamStub implements AutoCloseable {
+
+    static final int MODEL_COUNT = 50;
+
+    private final MockWebServer server = new MockWebServer();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Device> devices = new ArrayList<>();
+    private final Map<String, List<Device>> byModel = new HashMap<>();
+    private final long latencyMillis;
+
+    private UpstreamStub(int deviceCount, long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        for (int index = 0; index < deviceCount; index++) {
+            Device device = device(index);
+            devices.add(device);
+            byModel.computeIfAbsent(device.getModel(), model -> new ArrayList<>()).add(device);
+        }
+    }
+
+    public static UpstreamStub start(int deviceCount, long latencyMillis) throws IOException {
+        UpstreamStub stub = new UpstreamStub(deviceCount, latencyMillis);
+        stub.server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return stub.dispatch(request);
+            }
+        });
+        stub.server.start();
+        return stub;
+    }
+
+    static Device device(int index) {
+        return new Device("SN-" + index, "model" + (index % MODEL_COUNT), "Edge device number " + index);
+    }
+
+    public int getPort() {
+        return server.getPort();
+    }
+
+    private MockResponse dispatch(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        if (url == null || !"GET".equals(request.getMethod())) {
+            return new MockResponse().setResponseCode(405);
+        }
+        List<String> segments = url.pathSegments();
+        if (segments.size() == 3 && "api".equals(segments.get(0)) && "devices".equals(segments.get(1))) {
+            Device device = find(segments.get(2));
+            return device == null ? delayed(new MockResponse().setResponseCode(404)) : json(device);
+        }
+        if (!"/api/devices".equals(url.encodedPath())) {
+            return new MockResponse().setResponseCode(404);
+        }
+
+        List<String> ids = url.queryParameterValues("id");
+        if (!ids.isEmpty()) {
+            List<Device> found = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Device device = find(id);
+                if (device != null) {
+                    found.add(device);
+                }
+            }
+            return json(found);
+        }
+        String model = url.queryParameter("model");
+        if (model == null) {
+            return json(devices);
+        }
+        List<Device> modelDevices = byModel.getOrDefault(model, List.of());
+        int size = Integer.parseInt(url.queryParameter("size"));
+        int from = Math.min(Integer.parseInt(url.queryParameter("page")) * size, modelDevices.size());
+        return json(modelDevices.subList(from, Math.min(from + size, modelDevices.size())));
+    }
+
+    private Device find(String serialNumber) {
+        if (!serialNumber.startsWith("SN-")) {
+            return null;
+        }
+        try {
+            int index = Integer.parseInt(serialNumber.substring(3));
+            return index >= 0 && index < devices.size() ? devices.get(index) : null;
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private MockResponse json(Object body) {
+        try {
+            return delayed(new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(objectMapper.writeValueAsString(body)));
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private MockResponse delayed(MockResponse response) {
+        return response.setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
@@ -0,0 +1,247 @@
+package com.scratchy.cache;
+
+import com.scratchy.config.CatalogConfig;
+import com.scratchy.model.Device;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process copy of the upstream device feed, indexed by serial number and
+ * by model. A refresh builds a complete new snapshot off to the side while
+ * the current one keeps serving, then swaps it in atomically.
+ * <p>
+ * A feed larger than {@code app.catalog.max-size} is not cut off at an
+ * arbitrary device; whole models are evicted instead, least recently
+ * requested by model first, so the models kept still answer lookups by
+ * model and only the evicted ones go to the upstream.
+ */
+@Slf4j
+@Component
+public class DeviceCatalog {
+
+    private final CatalogConfig config;
+
+    private final Counter serialHits;
+    private final Counter serialMisses;
+    private final Counter modelHits;
+    private final Counter modelMisses;
+    private final Counter refreshFailures;
+
+    /**
+     * Logical time of the last lookup by model, for the models of the
+     * current snapshot; decides which models a refresh evicts first.
+     */
+    private final Map<String, Long> modelRequests = new ConcurrentHashMap<>();
+    private final AtomicLong requestClock = new AtomicLong();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public DeviceCatalog(CatalogConfig config, MeterRegistry registry) {
+        this.config = config;
+        this.serialHits = lookupCounter(registry, "serial", "hit");
+        this.serialMisses = lookupCounter(registry, "serial", "miss");
+        this.modelHits = lookupCounter(registry, "model", "hit");
+        this.modelMisses = lookupCounter(registry, "model", "miss");
+        this.refreshFailures = Counter.builder("device.catalog.refresh.failures")
+                .register(registry);
+        Gauge.builder("device.catalog.size", this, catalog -> catalog.snapshot.size)
+                .register(registry);
+        Gauge.builder("device.catalog.evicted.models", this,
+                catalog -> catalog.snapshot.evictedModels.size())
+                .register(registry);
+        TimeGauge.builder("device.catalog.staleness", this, TimeUnit.MILLISECONDS,
+                DeviceCatalog::stalenessMillis)
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public Duration getRefreshInterval() {
+        return config.getRefreshInterval();
+    }
+
+    public Optional<Device> findBySerialNumber(String serialNumber) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        Device device = isFresh(current) ? current.bySerialNumber.get(serialNumber) : null;
+        (device != null ? serialHits : serialMisses).increment();
+        return Optional.ofNullable(device);
+    }
+
+    /**
+     * Returns the devices of a model only when the snapshot is fresh and the
+     * model was not evicted from it; an evicted model is a miss rather than
+     * an empty list.
+     */
+    public Optional<List<Device>> findByModel(String model) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        Snapshot current = snapshot;
+        recordRequest(current, model);
+        if (!isFresh(current) || current.evictedModels.contains(model)) {
+            modelMisses.increment();
+            return Optional.empty();
+        }
+        modelHits.increment();
+        return Optional.of(current.byModel.getOrDefault(model, Collections.emptyList()));
+    }
+
+    /**
+     * Returns the devices of a model from the last snapshot, however old,
+     * unless the model was evicted from it; only meant for when the upstream
+     * cannot be asked.
+     */
+    public Optional<List<Device>> findLastKnownByModel(String model) {
+        Snapshot current = snapshot;
+        if (!config.isEnabled() || current.loadedAt == null
+                || current.evictedModels.contains(model)) {
+            return Optional.empty();
+        }
+        recordRequest(current, model);
+        return Optional.of(current.byModel.getOrDefault(model, Collections.emptyList()));
+    }
+
+    public Optional<Device> findLastKnownBySerialNumber(String serialNumber) {
+        if (!config.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot.bySerialNumber.get(serialNumber));
+    }
+
+    /**
+     * Streams the whole feed into a new snapshot. The upstream has no way to
+     * ask for the devices changed since the last refresh, so each refresh
+     * reads every device; the memory held is bounded by evicting models as
+     * soon as the snapshot grows past its maximum size.
+     */
+    public void refresh(Flux<Device> feed) {
+        int maxSize = config.getMaxSize();
+        Map<String, Device> bySerialNumber = new HashMap<>();
+        Map<String, List<Device>> byModel = new HashMap<>();
+        Set<String> evictedModels = new HashSet<>();
+
+        try {
+            feed.doOnNext(device -> {
+                if (evictedModels.contains(device.getModel())) {
+                    return;
+                }
+                bySerialNumber.put(device.getId(), device);
+                byModel.computeIfAbsent(device.getModel(), model -> new ArrayList<>()).add(device);
+                while (bySerialNumber.size() > maxSize) {
+                    String victim = leastRecentlyRequested(byModel);
+                    for (Device evicted : byModel.remove(victim)) {
+                        bySerialNumber.remove(evicted.getId());
+                    }
+                    evictedModels.add(victim);
+                }
+            }).blockLast();
+        } catch (RuntimeException exception) {
+            refreshFailures.increment();
+            log.warn("Refreshing device catalog failed, keeping previous snapshot", exception);
+            return;
+        }
+
+        byModel.replaceAll((model, devices) -> Collections.unmodifiableList(devices));
+        modelRequests.keySet().removeIf(model -> !byModel.containsKey(model)
+                && !evictedModels.contains(model));
+        snapshot = new Snapshot(bySerialNumber, byModel, evictedModels, Instant.now());
+        if (!evictedModels.isEmpty()) {
+            log.warn("Device catalog is limited to " + maxSize + " devices, " + evictedModels.size()
+                    + " models were evicted and their lookups will go to the upstream");
+        }
+        log.info("Device catalog refreshed with " + bySerialNumber.size() + " devices");
+    }
+
+    /**
+     * Models never requested go first, and among those the largest, so that
+     * one eviction frees as much room as it can.
+     */
+    private String leastRecentlyRequested(Map<String, List<Device>> byModel) {
+        String victim = null;
+        long victimRequest = Long.MAX_VALUE;
+        int victimSize = 0;
+        for (Map.Entry<String, List<Device>> entry : byModel.entrySet()) {
+            long request = modelRequests.getOrDefault(entry.getKey(), 0L);
+            int size = entry.getValue().size();
+            if (request < victimRequest || (request == victimRequest && size > victimSize)) {
+                victim = entry.getKey();
+                victimRequest = request;
+                victimSize = size;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Only models the snapshot knows of are tracked, so lookups of arbitrary
+     * model names do not grow the map.
+     */
+    private void recordRequest(Snapshot current, String model) {
+        if (current.byModel.containsKey(model) || current.evictedModels.contains(model)) {
+            modelRequests.put(model, requestClock.incrementAndGet());
+        }
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current.loadedAt != null
+                && Duration.between(current.loadedAt, Instant.now()).compareTo(config.getTtl()) <= 0;
+    }
+
+    private double stalenessMillis() {
+        Instant loadedAt = snapshot.loadedAt;
+        return loadedAt == null ? Double.NaN
+                : Duration.between(loadedAt, Instant.now()).toMillis();
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String lookup, String result) {
+        return Counter.builder("device.catalog.lookups")
+                .tag("lookup", lookup)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptySet(), null);
+
+        private final Map<String, Device> bySerialNumber;
+        private final Map<String, List<Device>> byModel;
+        private final Set<String> evictedModels;
+        private final Instant loadedAt;
+        private final int size;
+
+        private Snapshot(Map<String, Device> bySerialNumber, Map<String, List<Device>> byModel,
+                         Set<String> evictedModels, Instant loadedAt) {
+            this.bySerialNumber = bySerialNumber;
+            this.byModel = byModel;
+            this.evictedModels = evictedModels;
+            this.loadedAt = loadedAt;
+            this.size = bySerialNumber.size();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.scratchy.cache;
+
+import com.scratchy.config.ListingConfig;
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceListVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Last computed version of each model listing. Polling clients that send
+ * back a version computed within {@code app.listing.version-ttl} are told
+ * nothing changed without the devices being fetched again.
+ */
+@Component
+public class DeviceListVersions {
+
+    private final ListingConfig config;
+    private final Map<String, DeviceListVersion> versions;
+
+    public DeviceListVersions(ListingConfig config) {
+        this.config = config;
+        int maxModels = config.getMaxModels();
+        // access order, so models polled often outlive one-off ones
+        this.versions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DeviceListVersion> eldest) {
+                return size() > maxModels;
+            }
+        };
+    }
+
+    public Optional<DeviceListVersion> findRecent(String model) {
+        DeviceListVersion version;
+        synchronized (versions) {
+            version = versions.get(model);
+        }
+        if (version == null
+                || Duration.between(version.getComputedAt(), Instant.now())
+                .compareTo(config.getVersionTtl()) > 0) {
+            return Optional.empty();
+        }
+        return Optional.of(version);
+    }
+
+    /**
+     * Versions the devices now listed for {@code model}. Unchanged content
+     * keeps the ETag and Last-Modified of the previous version.
+     */
+    public DeviceListVersion record(String model, List<Device> devices) {
+        Digest digest = new Digest();
+        devices.forEach(digest::add);
+        return record(model, digest);
+    }
+
+    /**
+     * Versions a listing of {@code model} that was fed to {@code digest}
+     * while it was streamed.
+     */
+    public DeviceListVersion record(String model, Digest digest) {
+        String eTag = "W/\"" + digest.toHex() + "\"";
+        // Last-Modified is sent with second precision
+        Instant now = Instant.now();
+        synchronized (versions) {
+            DeviceListVersion previous = versions.remove(model);
+            Instant lastModified = previous != null && previous.getETag().equals(eTag)
+                    ? previous.getLastModified()
+                    : now.truncatedTo(ChronoUnit.SECONDS);
+            DeviceListVersion version = new DeviceListVersion(eTag, lastModified, now);
+            versions.put(model, version);
+            return version;
+        }
+    }
+
+    public static boolean isConditional(HttpHeaders request) {
+        return !request.getIfNoneMatch().isEmpty() || request.getIfModifiedSince() >= 0;
+    }
+
+    /**
+     * Evaluates {@code If-None-Match} with weak comparison and, only when it
+     * is absent, {@code If-Modified-Since}.
+     */
+    public static boolean isNotModified(DeviceListVersion version, HttpHeaders request) {
+        List<String> ifNoneMatch = request.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            String opaqueTag = opaqueTag(version.getETag());
+            return ifNoneMatch.stream()
+                    .anyMatch(tag -> "*".equals(tag) || opaqueTag.equals(opaqueTag(tag)));
+        }
+        long ifModifiedSince = request.getIfModifiedSince();
+        return ifModifiedSince >= 0 && version.getLastModified().toEpochMilli() <= ifModifiedSince;
+    }
+
+    private static String opaqueTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    /**
+     * SHA-256 of a device listing, fed one device at a time.
+     */
+    public static class Digest {
+
+        private final MessageDigest digest;
+
+        public Digest() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException("SHA-256 is not available", exception);
+            }
+        }
+
+        public void add(Device device) {
+            update(device.getId());
+            update(device.getModel());
+            update(device.getDescription());
+        }
+
+        String toHex() {
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        }
+
+        /**
+         * Length-prefixes every field, so no two different device lists feed
+         * the digest the same bytes.
+         */
+        private void update(String value) {
+            if (value == null) {
+                digest.update((byte) 0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update((byte) 1);
+            digest.update(new byte[]{(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+                    (byte) (bytes.length >>> 8), (byte) bytes.length});
+            digest.update(bytes);
+        }
+    }
+}
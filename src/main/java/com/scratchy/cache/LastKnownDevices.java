@@ -0,0 +1,38 @@
+package com.scratchy.cache;
+
+import com.scratchy.model.Device;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The most recently looked up devices, kept so they can still be served
+ * while the upstream is unavailable. Evicts the least recently stored
+ * device once {@code maxSize} is reached.
+ */
+public class LastKnownDevices {
+
+    private final Map<String, Device> devices;
+
+    public LastKnownDevices(int maxSize) {
+        this.devices = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Device> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public void put(Device device) {
+        synchronized (devices) {
+            devices.put(device.getId(), device);
+        }
+    }
+
+    public Optional<Device> get(String serialNumber) {
+        synchronized (devices) {
+            return Optional.ofNullable(devices.get(serialNumber));
+        }
+    }
+}
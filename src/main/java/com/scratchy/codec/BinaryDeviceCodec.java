@@ -0,0 +1,150 @@
+package com.scratchy.codec;
+
+import com.scratchy.model.Device;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Length-prefixed binary payloads. A payload starts with a version byte and
+ * a varint device count, followed by the id, model and description of each
+ * device. A string is written as a varint of its UTF-8 length plus one,
+ * with zero standing for {@code null}, and then its bytes.
+ */
+public class BinaryDeviceCodec implements DeviceCodec {
+
+    public static final String FORMAT = "binary-v1";
+
+    private static final byte VERSION = 1;
+
+    @Override
+    public String format() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] encode(Device device) {
+        return encodeAll(List.of(device));
+    }
+
+    @Override
+    public byte[] encodeAll(List<Device> devices) {
+        Output output = new Output(devices.size() * 48 + 8);
+        output.writeByte(VERSION);
+        output.writeVarInt(devices.size());
+        for (Device device : devices) {
+            output.writeString(device.getId());
+            output.writeString(device.getModel());
+            output.writeString(device.getDescription());
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public List<Device> decode(byte[] payload) {
+        Input input = new Input(payload);
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary device payload version " + version);
+        }
+        int count = input.readVarInt();
+        // a device takes at least three bytes, so a bogus count cannot over-allocate
+        List<Device> devices = new ArrayList<>(Math.min(count, payload.length / 3));
+        for (int index = 0; index < count; index++) {
+            devices.add(new Device(input.readString(), input.readString(), input.readString()));
+        }
+        return devices;
+    }
+
+    private static final class Output {
+
+        private byte[] buffer;
+        private int position;
+
+        private Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+
+        private Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte readByte() {
+            checkAvailable(1);
+            return buffer[position++];
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte current = readByte();
+                value |= (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        private String readString() {
+            int length = readVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkAvailable(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private void checkAvailable(int length) {
+            if (length > buffer.length - position) {
+                throw new IllegalArgumentException("Binary device payload is truncated");
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.scratchy.codec;
+
+import com.scratchy.model.Device;
+
+import java.util.List;
+
+/**
+ * Encodes {@code device-topic} payloads. Every record carries the
+ * {@link #FORMAT_HEADER} header with the {@link #format()} of its codec, so
+ * consumers can pick the matching decoder per record.
+ */
+public interface DeviceCodec {
+
+    String FORMAT_HEADER = "device-format";
+
+    String format();
+
+    byte[] encode(Device device);
+
+    byte[] encodeAll(List<Device> devices);
+
+    /**
+     * Decodes a payload produced by either {@link #encode} or
+     * {@link #encodeAll}.
+     */
+    List<Device> decode(byte[] payload);
+}
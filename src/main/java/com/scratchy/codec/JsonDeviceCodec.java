@@ -0,0 +1,73 @@
+package com.scratchy.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.scratchy.model.Device;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A device as a JSON object and a batch as a JSON array, the payloads
+ * {@code device-topic} has always carried.
+ */
+public class JsonDeviceCodec implements DeviceCodec {
+
+    public static final String FORMAT = "json";
+
+    private final ObjectWriter writer;
+    private final ObjectReader deviceReader;
+    private final ObjectReader batchReader;
+
+    public JsonDeviceCodec(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer();
+        this.deviceReader = objectMapper.readerFor(Device.class);
+        this.batchReader = objectMapper.readerFor(Device[].class);
+    }
+
+    @Override
+    public String format() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] encode(Device device) {
+        try {
+            return writer.writeValueAsBytes(device);
+        } catch (IOException exception) {
+            throw new RuntimeException("During encoding a device something went wrong", exception);
+        }
+    }
+
+    @Override
+    public byte[] encodeAll(List<Device> devices) {
+        try {
+            return writer.writeValueAsBytes(devices);
+        } catch (IOException exception) {
+            throw new RuntimeException("During encoding devices something went wrong", exception);
+        }
+    }
+
+    @Override
+    public List<Device> decode(byte[] payload) {
+        try {
+            return isArray(payload)
+                    ? Arrays.asList(batchReader.<Device[]>readValue(payload))
+                    : List.of(deviceReader.<Device>readValue(payload));
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Payload is not a json device or device array",
+                    exception);
+        }
+    }
+
+    private static boolean isArray(byte[] payload) {
+        for (byte value : payload) {
+            if (!Character.isWhitespace(value)) {
+                return value == '[';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package com.scratchy.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Slf4j
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Declaring any executor bean switches off Boot's auto-configured one,
+     * which serves MVC async requests and {@code @Async}, so it is declared
+     * here explicitly under the same names. With virtual threads every task
+     * gets its own thread, since a pool would still cap streamed responses
+     * at its core size.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @Primary
+    public AsyncListenableTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder,
+                                                               ThreadConfig threadConfig) {
+        if (threadConfig.isVirtual()) {
+            return new ConcurrentTaskExecutor(VirtualThreads.newPerTaskExecutor("task-"));
+        }
+        return builder.build();
+    }
+
+    /**
+     * With virtual threads the pool size still bounds how many uploads run
+     * at once, since each holds a spooled file and in-flight chunks; only
+     * the threads themselves become cheap.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor uploadExecutor(UploadConfig config, ThreadConfig threadConfig) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(config.getJobThreads());
+        executor.setMaxPoolSize(config.getJobThreads());
+        executor.setQueueCapacity(config.getJobQueueCapacity());
+        executor.setThreadNamePrefix("upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        if (threadConfig.isVirtual()) {
+            executor.setThreadFactory(VirtualThreads.factory("upload-"));
+        }
+        return executor;
+    }
+
+    /**
+     * Hands every request to a new virtual thread instead of Tomcat's worker
+     * pool, so blocking upstream, JPA and SMTP calls no longer cap
+     * concurrency at {@code server.tomcat.threads.max}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.threads.virtual", havingValue = "true")
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        log.info("Serving requests on virtual threads, running on Java " + Runtime.version());
+        return protocolHandler ->
+                protocolHandler.setExecutor(VirtualThreads.newPerTaskExecutor("http-"));
+    }
+}
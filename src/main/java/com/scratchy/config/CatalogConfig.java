@@ -0,0 +1,25 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.catalog")
+public class CatalogConfig {
+    private boolean enabled;
+
+    /**
+     * Age after which a loaded snapshot is no longer served and lookups go
+     * to the upstream until the next successful refresh.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+    private Duration refreshInterval = Duration.ofMinutes(1);
+
+    /**
+     * Most devices a snapshot holds; past it whole models are evicted, least
+     * recently requested first.
+     */
+    private int maxSize = 1_000_000;
+}
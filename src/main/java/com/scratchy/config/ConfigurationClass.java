@@ -4,6 +4,8 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
-@EnableConfigurationProperties(EnvironmentConfig.class)
+@EnableConfigurationProperties({EnvironmentConfig.class, CatalogConfig.class, UpstreamConfig.class,
+        UploadConfig.class, DeviceTopicConfig.class, NotificationConfig.class, OutboxConfig.class,
+        ThreadConfig.class, ListingConfig.class, TokenConfig.class, DeviceStoreConfig.class})
 public class ConfigurationClass {
 }
@@ -0,0 +1,17 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.device-store")
+public class DeviceStoreConfig {
+
+    /**
+     * Pause before a batch whose write to the device table failed is
+     * delivered again.
+     */
+    private Duration retryInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,39 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.kafka.topic")
+public class DeviceTopicConfig {
+    private String name = "device-topic";
+    private int partitions = 12;
+    private int replicas = 1;
+
+    private PublishMode publishMode = PublishMode.RECORD;
+
+    /**
+     * Maximum number of devices per record when publishing in
+     * {@link PublishMode#BATCH} mode.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Encoding of record values, announced to consumers in the
+     * {@code device-format} header of every record.
+     */
+    private PayloadFormat format = PayloadFormat.JSON;
+
+    public enum PublishMode {
+        /** One record per device, keyed by serial number. */
+        RECORD,
+        /** One record per batch of devices that share a partition. */
+        BATCH
+    }
+
+    public enum PayloadFormat {
+        JSON,
+        /** Length-prefixed binary, see {@code BinaryDeviceCodec}. */
+        BINARY
+    }
+}
@@ -8,4 +8,12 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class EnvironmentConfig {
     private String url;
     private String port;
+
+    /**
+     * Whether the upstream understands the {@code model}, {@code page} and
+     * {@code size} query parameters on {@code /api/devices}. When disabled
+     * the full feed is streamed and filtered locally.
+     */
+    private boolean modelFilterSupported;
+    private int pageSize = 500;
 }
@@ -1,15 +1,46 @@
 package com.scratchy.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scratchy.codec.BinaryDeviceCodec;
+import com.scratchy.codec.DeviceCodec;
+import com.scratchy.codec.JsonDeviceCodec;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.listener.SeekToCurrentBatchErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 @Configuration
 public class KafkaTopicConfig {
 
     @Bean
-    public NewTopic topic1() {
-        return TopicBuilder.name("device-topic").build();
+    public NewTopic topic1(DeviceTopicConfig config) {
+        return TopicBuilder.name(config.getName())
+                .partitions(config.getPartitions())
+                .replicas(config.getReplicas())
+                .build();
+    }
+
+    @Bean
+    public DeviceCodec deviceCodec(DeviceTopicConfig config, ObjectMapper objectMapper) {
+        return config.getFormat() == DeviceTopicConfig.PayloadFormat.BINARY
+                ? new BinaryDeviceCodec()
+                : new JsonDeviceCodec(objectMapper);
+    }
+
+    /**
+     * Picked up by Boot's batch listener container factory. A batch the
+     * device store failed to write is sought back and delivered again, for
+     * as long as the write fails, instead of being logged and committed.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.device-store.enabled", havingValue = "true")
+    public SeekToCurrentBatchErrorHandler deviceStoreErrorHandler(DeviceStoreConfig config) {
+        SeekToCurrentBatchErrorHandler errorHandler = new SeekToCurrentBatchErrorHandler();
+        errorHandler.setBackOff(new FixedBackOff(config.getRetryInterval().toMillis(),
+                FixedBackOff.UNLIMITED_ATTEMPTS));
+        return errorHandler;
     }
 }
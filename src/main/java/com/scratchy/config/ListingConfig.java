@@ -0,0 +1,23 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.listing")
+public class ListingConfig {
+
+    /**
+     * How long a computed version of a model listing answers a matching
+     * {@code If-None-Match} with 304 without fetching the devices again.
+     */
+    private Duration versionTtl = Duration.ofSeconds(5);
+
+    /**
+     * Models whose last version is remembered; the least recently requested
+     * or computed one is dropped first.
+     */
+    private int maxModels = 10_000;
+}
@@ -0,0 +1,24 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.notification")
+public class NotificationConfig {
+    private String from;
+
+    /**
+     * Appended to the principal name when the token carries no email claim;
+     * without it such uploads are not notified.
+     */
+    private String defaultDomain;
+
+    private int queueCapacity = 10_000;
+    private Duration flushInterval = Duration.ofSeconds(5);
+    private int maxAttempts = 5;
+    private Duration initialBackoff = Duration.ofSeconds(5);
+    private Duration maxBackoff = Duration.ofMinutes(10);
+}
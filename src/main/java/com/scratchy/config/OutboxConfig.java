@@ -0,0 +1,14 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.kafka.outbox")
+public class OutboxConfig {
+    private int batchSize = 500;
+    private Duration pollInterval = Duration.ofMillis(500);
+    private Duration sendTimeout = Duration.ofSeconds(30);
+}
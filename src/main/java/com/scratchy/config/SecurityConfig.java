@@ -4,6 +4,7 @@ import org.keycloak.adapters.springboot.KeycloakSpringBootConfigResolver;
 import org.keycloak.adapters.springsecurity.authentication.KeycloakAuthenticationProvider;
 import org.keycloak.adapters.springsecurity.config.KeycloakWebSecurityConfigurerAdapter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -15,9 +16,14 @@ import org.springframework.security.web.authentication.session.RegisterSessionAu
 import org.springframework.security.web.authentication.session.SessionAuthenticationStrategy;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+/**
+ * Keycloak adapter security, used unless {@code app.security.stateless} is
+ * set; see {@link StatelessSecurityConfig}.
+ */
 @Configuration
 @EnableWebSecurity
 @EnableSwagger2
+@ConditionalOnProperty(name = "app.security.stateless", havingValue = "false", matchIfMissing = true)
 public class SecurityConfig extends KeycloakWebSecurityConfigurerAdapter {
 
     @Autowired
@@ -41,14 +47,23 @@ public class SecurityConfig extends KeycloakWebSecurityConfigurerAdapter {
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         super.configure(http);
+        authorizeRequests(http);
+
+        http.csrf().disable();
+    }
+
+    static void authorizeRequests(HttpSecurity http) throws Exception {
         http.authorizeRequests()
-                .antMatchers("/rest/*")
+                .antMatchers("/rest/*", "/rest/devices/async", "/rest/devices/jobs/**")
                 .hasRole("user")
-                .antMatchers("/rest/devices/csv/uploaded")
+                .antMatchers("/rest/devices/csv/uploaded/**")
+                .hasRole("admin")
+                // metrics carry per-uri latencies and user tagged counts
+                .antMatchers("/actuator/health", "/actuator/health/**")
+                .permitAll()
+                .antMatchers("/actuator/**")
                 .hasRole("admin")
                 .anyRequest()
                 .permitAll();
-
-        http.csrf().disable();
     }
 }
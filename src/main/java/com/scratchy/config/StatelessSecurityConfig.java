@@ -0,0 +1,50 @@
+package com.scratchy.config;
+
+import com.scratchy.security.BearerTokenAuthenticationFilter;
+import com.scratchy.security.BearerTokenVerifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+import springfox.documentation.swagger2.annotations.EnableSwagger2;
+
+/**
+ * Bearer-only security without sessions: every request is authenticated
+ * from its token by {@link BearerTokenAuthenticationFilter}, and nothing is
+ * registered or stored per client between requests.
+ */
+@Configuration
+@EnableWebSecurity
+@EnableSwagger2
+@ConditionalOnProperty(name = "app.security.stateless", havingValue = "true")
+public class StatelessSecurityConfig extends WebSecurityConfigurerAdapter {
+
+    private final BearerTokenVerifier verifier;
+
+    public StatelessSecurityConfig(BearerTokenVerifier verifier) {
+        this.verifier = verifier;
+    }
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http.sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .requestCache().disable()
+                .addFilterBefore(new BearerTokenAuthenticationFilter(verifier),
+                        AnonymousAuthenticationFilter.class)
+                .exceptionHandling()
+                .authenticationEntryPoint((request, response, exception) -> {
+                    response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+                    response.sendError(HttpStatus.UNAUTHORIZED.value());
+                });
+        SecurityConfig.authorizeRequests(http);
+
+        http.csrf().disable();
+    }
+}
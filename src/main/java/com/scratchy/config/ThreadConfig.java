@@ -0,0 +1,16 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "app.threads")
+public class ThreadConfig {
+
+    /**
+     * Runs Tomcat requests, MVC async work and upload jobs on virtual
+     * threads. Needs a JDK with virtual threads (21 or later), see the
+     * {@code loom} profile.
+     */
+    private boolean virtual;
+}
@@ -0,0 +1,39 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.security")
+public class TokenConfig {
+
+    /**
+     * Verifies bearer tokens locally against the realm's signing keys
+     * instead of going through the Keycloak adapter and its session
+     * registry; no server-side state is kept per client.
+     */
+    private boolean stateless;
+
+    private Duration keyRefreshInterval = Duration.ofMinutes(10);
+
+    /**
+     * Least time between two key fetches triggered by tokens signed with an
+     * unknown key, so forged key ids cannot hammer the realm.
+     */
+    private Duration unknownKeyRefetchInterval = Duration.ofSeconds(10);
+
+    private Duration keyFetchTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Verified tokens remembered until they expire, so repeat requests skip
+     * the signature check.
+     */
+    private int verifiedTokenCacheSize = 4096;
+
+    /**
+     * How often expired tokens are dropped from the verified token cache.
+     */
+    private Duration tokenCacheEvictionInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,75 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.upload")
+public class UploadConfig {
+
+    /**
+     * Number of parsed devices handed downstream at once; bounds the heap
+     * used by an upload independently of the file size.
+     */
+    private int chunkSize = 1000;
+
+    /**
+     * Chunks handed to the publisher but not yet acknowledged; parsing
+     * pauses while this many are outstanding.
+     */
+    private int maxInFlightChunks = 8;
+
+    /**
+     * Chunk size from which row validation runs in parallel across cores.
+     */
+    private int parallelValidationThreshold = 1000;
+
+    /**
+     * Number of published rows after which the resume offset of an upload
+     * is written to the database.
+     */
+    private int checkpointRows = 10_000;
+
+    /**
+     * How long an upload may stay in progress without a checkpoint before an
+     * upload of the same content takes it over, e.g. after its instance
+     * died. Must exceed the time to publish {@code checkpoint-rows} rows.
+     */
+    private Duration staleUploadTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Publishes only devices that are new or whose model or description
+     * differ from what an earlier delta upload published. Fingerprints are
+     * only kept in this mode, so switching it on after running without it
+     * starts with one full upload.
+     */
+    private boolean delta = false;
+
+    /**
+     * In delta mode, also publishes a deletion for every device an earlier
+     * upload published but this one lacks. Only for uploads that always
+     * carry the whole fleet; listed devices are marked in the fingerprint
+     * table by upload, so two such uploads must not run at the same time.
+     */
+    private boolean deleteMissing = false;
+
+    /**
+     * Largest page of the upload history a client may request.
+     */
+    private int historyMaxPageSize = 1000;
+
+    private int jobThreads = 2;
+    private int jobQueueCapacity = 16;
+
+    /**
+     * How long a finished upload job stays available for polling.
+     */
+    private Duration jobRetention = Duration.ofHours(1);
+
+    /**
+     * How often finished jobs past their retention are dropped.
+     */
+    private Duration jobCleanupInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,77 @@
+package com.scratchy.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.upstream")
+public class UpstreamConfig {
+    private int maxConnections = 200;
+    private int pendingAcquireMaxCount = 1000;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Resolves concurrent serial number lookups in bulk through
+     * {@code GET /api/devices?id=...}; requires upstream support.
+     */
+    private boolean batchLookups;
+    private Duration batchWindow = Duration.ofMillis(5);
+    private int batchMaxSize = 100;
+
+    /**
+     * Limits of the bulk lookup endpoint: serial numbers per request and
+     * upstream calls in flight for one request.
+     */
+    private int bulkMaxSize = 1000;
+    private int bulkParallelism = 16;
+
+    private Timeouts timeouts = new Timeouts();
+
+    /**
+     * Upstream calls allowed in flight at once; calls beyond it fail fast
+     * instead of queueing behind a slow upstream.
+     */
+    private int bulkheadMaxConcurrentCalls = 100;
+
+    /**
+     * Retries of an idempotent GET after timeouts, connection errors and
+     * 5xx responses, with jittered exponential backoff.
+     */
+    private int retryMaxAttempts = 2;
+    private Duration retryBackoff = Duration.ofMillis(100);
+    private Duration retryMaxBackoff = Duration.ofSeconds(1);
+
+    private float circuitFailureRateThreshold = 50;
+    private int circuitSlidingWindowSize = 100;
+    private int circuitMinimumCalls = 20;
+    private Duration circuitOpenDuration = Duration.ofSeconds(10);
+    private int circuitHalfOpenCalls = 5;
+
+    /**
+     * Devices remembered from successful lookups, served while the circuit
+     * breaker is open.
+     */
+    private int lastKnownSize = 10_000;
+
+    /**
+     * Time allowed for one upstream call, by endpoint.
+     */
+    @Data
+    public static class Timeouts {
+        private Duration device = Duration.ofSeconds(2);
+        private Duration bulk = Duration.ofSeconds(5);
+        private Duration page = Duration.ofSeconds(10);
+
+        /**
+         * Applies between two devices of the streamed full feed rather than
+         * to the whole response.
+         */
+        private Duration feed = Duration.ofSeconds(30);
+    }
+}
@@ -1,8 +1,21 @@
 package com.scratchy.controller;
 
+import com.scratchy.cache.DeviceListVersions;
+import com.scratchy.csv.DeviceCsvReader;
 import com.scratchy.model.Device;
 import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.DeviceFileFilter;
+import com.scratchy.model.DeviceFilePage;
+import com.scratchy.model.DeviceListVersion;
+import com.scratchy.model.DeviceLookupResult;
+import com.scratchy.model.DeviceValidationError;
+import com.scratchy.model.UploadJob;
+import com.scratchy.model.UploadStatistics;
 import com.scratchy.service.DeviceService;
+import com.scratchy.service.ReactiveDeviceService;
+import com.scratchy.service.UploadJobService;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -10,12 +23,29 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
 import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Slf4j
 @RestController
@@ -24,6 +54,9 @@ import java.security.Principal;
 public class DeviceRestController {
 
     private final DeviceService service;
+    private final ReactiveDeviceService reactiveService;
+    private final UploadJobService uploadJobService;
+    private final DeviceListVersions listVersions;
 
     @Operation(summary = "Getting existing device by id")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Device was found",
@@ -31,51 +64,223 @@ public class DeviceRestController {
             @ApiResponse(responseCode = "404", description = "Device was not found",
                     content = {@Content(mediaType = "application/json")})})
     @GetMapping("/devices/{id}")
-    public ResponseEntity<Device> getDeviceById(@PathVariable("id") String id) {
+    public Mono<ResponseEntity<Device>> getDeviceById(@PathVariable("id") String id) {
         log.info("Getting device by id: " + id);
-        return service.getDeviceBySerialNumber(id);
+        return reactiveService.getDeviceBySerialNumber(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
     }
 
-    @Operation(summary = "Getting device list by model in json format")
-    @ApiResponse(responseCode = "200", description = "Device list was found",
+    @Operation(summary = "Getting existing devices by a list of ids")
+    @ApiResponse(responseCode = "200", description = "Lookup result per requested id",
             content = {@Content(mediaType = "application/json")})
+    @PostMapping(value = "/devices/lookup", consumes = "application/json")
+    public Flux<DeviceLookupResult> getDevicesByIds(@RequestBody List<String> ids) {
+        log.info("Getting " + ids.size() + " devices by id");
+        return reactiveService.getDevicesBySerialNumbers(ids);
+    }
+
+    @Operation(summary = "Getting existing devices by a csv list of ids")
+    @ApiResponse(responseCode = "200", description = "Lookup result per requested id",
+            content = {@Content(mediaType = "application/json")})
+    @PostMapping(value = "/devices/lookup", consumes = "text/csv")
+    public Flux<DeviceLookupResult> getDevicesByIdsInCsv(@RequestBody String ids)
+            throws IOException {
+        return getDevicesByIds(DeviceCsvReader.readSerialNumbers(new StringReader(ids)));
+    }
+
+    @Operation(summary = "Getting device list by model in json format")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Device list was found",
+            content = {@Content(mediaType = "application/json")}),
+            @ApiResponse(responseCode = "304", description = "Device list did not change")})
     @GetMapping("/devices/json/{model}")
-    public ResponseEntity<Iterable<Device>> getDeviceListByModelInJson(
-            @PathVariable("model") String model) {
+    public Mono<ResponseEntity<List<Device>>> getDeviceListByModelInJson(
+            @PathVariable("model") String model, @RequestHeader HttpHeaders headers) {
         log.info("Getting devices by model in json format");
-        return service.getDeviceListByModelInJson(model);
+        return getDeviceListByModel(model, headers, devices -> devices);
     }
 
     @Operation(summary = "Getting device list by model in csv format")
-    @ApiResponse(responseCode = "200", description = "Device list was found",
-                content = {@Content(mediaType = "text/csv")})
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Device list was found",
+            content = {@Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "304", description = "Device list did not change")})
     @GetMapping(value = "/devices/csv/{model}", produces = "text/csv")
-    public ResponseEntity<String> getDeviceListByModelInCsv(
-            @PathVariable("model") String model) {
+    public Mono<ResponseEntity<StreamingResponseBody>> getDeviceListByModelInCsv(
+            @PathVariable("model") String model, @RequestHeader HttpHeaders headers) {
         log.info("Getting devices by model in csv format");
-        return ResponseEntity.ok(service.getDeviceListByModelInCsv(model));
+        if (!DeviceListVersions.isConditional(headers)) {
+            return Mono.fromSupplier(() -> streamDeviceListByModelInCsv(model));
+        }
+        return getDeviceListByModel(model, headers, devices -> outputStream ->
+                service.writeDeviceListInCsv(devices, outputStream));
+    }
+
+    /**
+     * Writes rows as they arrive, since an unconditional request has nothing
+     * to compare before rendering. The response carries no ETag or
+     * Last-Modified, which would have to be computed from other bytes than
+     * the ones sent; the streamed listing is versioned once written, so the
+     * next conditional request is answered from it.
+     */
+    private ResponseEntity<StreamingResponseBody> streamDeviceListByModelInCsv(String model) {
+        return ResponseEntity.ok().body(outputStream -> {
+            DeviceListVersions.Digest digest = new DeviceListVersions.Digest();
+            service.writeDeviceListInCsv(reactiveService.getDeviceListByModel(model)
+                    .doOnNext(digest::add)
+                    .toIterable(), outputStream);
+            listVersions.record(model, digest);
+        });
+    }
+
+    /**
+     * Answers a conditional request with 304 before rendering, and before
+     * fetching the devices at all when the client holds a version computed
+     * within {@code app.listing.version-ttl}.
+     */
+    private <T> Mono<ResponseEntity<T>> getDeviceListByModel(String model, HttpHeaders headers,
+                                                             Function<List<Device>, T> render) {
+        return Mono.defer(() -> {
+            Optional<DeviceListVersion> recent = listVersions.findRecent(model);
+            if (recent.isPresent() && DeviceListVersions.isNotModified(recent.get(), headers)) {
+                return Mono.just(notModified(recent.get()));
+            }
+            return reactiveService.getDeviceListByModel(model)
+                    .collectList()
+                    .map(devices -> {
+                        DeviceListVersion version = listVersions.record(model, devices);
+                        if (DeviceListVersions.isNotModified(version, headers)) {
+                            return notModified(version);
+                        }
+                        return ResponseEntity.ok()
+                                .eTag(version.getETag())
+                                .lastModified(version.getLastModified())
+                                .body(render.apply(devices));
+                    });
+        });
+    }
+
+    private static <T> ResponseEntity<T> notModified(DeviceListVersion version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(version.getETag())
+                .lastModified(version.getLastModified())
+                .build();
     }
 
     @Operation(summary = "Creating new devices from a csv file")
-    @ApiResponse(responseCode = "204", description = "Devices were successfully created",
-            content = {@Content(mediaType = "application/json")})
+    @ApiResponses(value = {@ApiResponse(responseCode = "201", description = "Devices were successfully created; "
+            + "the Location header links the job and its report of rejected rows",
+            content = {@Content(mediaType = "application/json")}),
+            @ApiResponse(responseCode = "409", description = "An upload of the same content is in progress",
+                    content = {@Content(mediaType = "application/json")})})
     @PostMapping(value = "/devices")
-    public ResponseEntity<Iterable<Device>> creatingDevicesFromCsvFile(
+    public ResponseEntity<DeviceFileDto> creatingDevicesFromCsvFile(
             @RequestParam("file") MultipartFile file, Principal principal) {
         log.info("Creating devices from csv file - " + file.getOriginalFilename());
-        Iterable<Device> deviceList = service.createDevicesFromCsvFile(file, principal);
-        log.info("Sending success email");
-        service.sendEmail();
-        return ResponseEntity.status(HttpStatus.CREATED).body(deviceList);
+        UploadJob job = uploadJobService.run(file, principal);
+        return ResponseEntity.created(URI.create("/rest/devices/jobs/" + job.getId()))
+                .body(job.getFileDto());
     }
 
-    @Operation(summary = "Getting all csvs that were uploaded")
-    @ApiResponse(responseCode = "200", description = "Uploaded files list was successfully returned",
+    @Operation(summary = "Creating new devices from a csv file in the background")
+    @ApiResponse(responseCode = "202", description = "Upload was accepted and queued",
             content = {@Content(mediaType = "application/json")})
+    @PostMapping(value = "/devices/async")
+    public ResponseEntity<UploadJob> creatingDevicesFromCsvFileAsync(
+            @RequestParam("file") MultipartFile file, Principal principal) {
+        log.info("Queueing devices creation from csv file - " + file.getOriginalFilename());
+        UploadJob job = uploadJobService.submit(file, principal);
+        return ResponseEntity.accepted()
+                .location(URI.create("/rest/devices/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @Operation(summary = "Getting progress of a background upload")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Upload job was found",
+            content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UploadJob.class))}),
+            @ApiResponse(responseCode = "404", description = "Upload job was not found",
+                    content = {@Content(mediaType = "application/json")})})
+    @GetMapping("/devices/jobs/{jobId}")
+    public ResponseEntity<UploadJob> getUploadJob(@PathVariable("jobId") String jobId) {
+        log.info("Getting upload job: " + jobId);
+        return ResponseEntity.of(uploadJobService.getJob(jobId));
+    }
+
+    @Operation(summary = "Getting rows of an upload that failed validation")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Error report was found",
+            content = {@Content(mediaType = "application/json")}),
+            @ApiResponse(responseCode = "404", description = "Upload job was not found",
+                    content = {@Content(mediaType = "application/json")})})
+    @GetMapping("/devices/jobs/{jobId}/errors")
+    public ResponseEntity<List<DeviceValidationError>> getUploadJobErrors(
+            @PathVariable("jobId") String jobId) {
+        log.info("Getting error report of upload job: " + jobId);
+        return ResponseEntity.of(uploadJobService.getJob(jobId).map(UploadJob::getErrors));
+    }
+
+    @Operation(summary = "Getting a page of csvs that were uploaded",
+            description = "Uploads are ordered by upload date; the next page is linked in the Link header")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Uploaded files list was successfully returned",
+            content = {@Content(mediaType = "application/json")}),
+            @ApiResponse(responseCode = "400", description = "Page size or cursor is invalid",
+                    content = {@Content(mediaType = "application/json")})})
     @GetMapping("/devices/csv/uploaded")
-    public ResponseEntity<Iterable<DeviceFileDto>> getListOfUploadedFiles() {
+    public ResponseEntity<List<DeviceFileDto>> getListOfUploadedFiles(
+            @RequestParam(value = "userName", required = false) String userName,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "direction", defaultValue = "DESC") Sort.Direction direction,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
         log.info("Getting list of uploaded files");
-        return ResponseEntity.status(HttpStatus.OK)
-                .body(service.getListOfUploadedFiles());
+        DeviceFilePage page = service.getUploadedFiles(new DeviceFileFilter(userName, from, to),
+                cursor, direction, size);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.getNextCursor() != null) {
+            response.header(HttpHeaders.LINK, "<" + ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString() + ">; rel=\"next\"");
+        }
+        return response.body(page.getFiles());
+    }
+
+    @Operation(summary = "Getting numbers of uploads and uploaded devices per user and day")
+    @ApiResponse(responseCode = "200", description = "Statistics were successfully returned",
+            content = {@Content(mediaType = "application/json")})
+    @GetMapping("/devices/csv/uploaded/statistics")
+    public ResponseEntity<List<UploadStatistics>> getUploadStatistics(
+            @RequestParam(value = "userName", required = false) String userName,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.info("Getting upload statistics");
+        return ResponseEntity.ok(service.getUploadStatistics(new DeviceFileFilter(userName, from, to)));
+    }
+
+    @ExceptionHandler(WebClientResponseException.class)
+    public ResponseEntity<Device> handleUpstreamError(WebClientResponseException exception) {
+        log.info("Upstream responded with " + exception.getRawStatusCode());
+        return ResponseEntity.status(exception.getStatusCode()).body(null);
+    }
+
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<Device> handleUpstreamUnavailable(RuntimeException exception) {
+        log.info("Upstream call was rejected: " + exception.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+    }
+
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<Device> handleUpstreamTimeout(TimeoutException exception) {
+        log.info("Upstream did not respond in time");
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(null);
+    }
+
+    @ExceptionHandler(WebClientRequestException.class)
+    public ResponseEntity<Device> handleUpstreamUnreachable(WebClientRequestException exception) {
+        log.info("Upstream could not be reached: " + exception.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(null);
     }
 }
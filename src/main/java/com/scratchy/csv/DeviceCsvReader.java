@@ -0,0 +1,81 @@
+package com.scratchy.csv;
+
+import com.scratchy.model.Device;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads devices from a csv stream record by record. Only the current chunk
+ * is held in memory, whatever the size of the underlying stream.
+ */
+public class DeviceCsvReader implements Closeable {
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.withFirstRecordAsHeader();
+
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> records;
+
+    public DeviceCsvReader(InputStream inputStream) throws IOException {
+        this.parser = FORMAT.parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        this.records = parser.iterator();
+    }
+
+    public boolean hasNext() {
+        return records.hasNext();
+    }
+
+    public Device next() {
+        CSVRecord record = records.next();
+        return new Device(record.get("id"), record.get("model"), record.get("description"));
+    }
+
+    /**
+     * Returns up to {@code chunkSize} devices, or an empty list once the
+     * stream is exhausted.
+     */
+    public List<Device> nextChunk(int chunkSize) {
+        List<Device> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && records.hasNext()) {
+            chunk.add(next());
+        }
+        return chunk;
+    }
+
+    /**
+     * Reads serial numbers separated by commas or line breaks, skipping an
+     * optional {@code id} header.
+     */
+    public static List<String> readSerialNumbers(Reader reader) throws IOException {
+        List<String> serialNumbers = new ArrayList<>();
+        try (CSVParser serialParser = CSVFormat.DEFAULT.parse(reader)) {
+            for (CSVRecord record : serialParser) {
+                for (String value : record) {
+                    String serialNumber = value.trim();
+                    if (!serialNumber.isEmpty()) {
+                        serialNumbers.add(serialNumber);
+                    }
+                }
+            }
+        }
+        if (!serialNumbers.isEmpty() && serialNumbers.get(0).equalsIgnoreCase("id")) {
+            serialNumbers.remove(0);
+        }
+        return serialNumbers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -0,0 +1,45 @@
+package com.scratchy.csv;
+
+import com.scratchy.model.Device;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes devices as csv rows one at a time, so the caller decides how much
+ * is held in memory. The header is written on construction.
+ */
+public class DeviceCsvWriter implements Closeable, Flushable {
+
+    private static final CSVFormat FORMAT =
+            CSVFormat.DEFAULT.withHeader("id", "model", "description");
+
+    private final CSVPrinter printer;
+
+    public DeviceCsvWriter(Appendable out) throws IOException {
+        this.printer = new CSVPrinter(out, FORMAT);
+    }
+
+    public void write(Device device) throws IOException {
+        printer.printRecord(device.getId(), device.getModel(), device.getDescription());
+    }
+
+    public void writeAll(Iterable<Device> devices) throws IOException {
+        for (Device device : devices) {
+            write(device);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        printer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        printer.close();
+    }
+}
@@ -6,13 +6,20 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 
+/**
+ * A device as published on {@code device-topic}; the edge keeps the ones it
+ * has consumed in a local table so lookups can skip the upstream.
+ */
 @Data
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = @Index(name = "device_model_idx", columnList = "model"))
 public class Device {
 
     @Id
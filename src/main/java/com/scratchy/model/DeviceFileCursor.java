@@ -0,0 +1,43 @@
+package com.scratchy.model;
+
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the upload history after the last returned upload. Encoded
+ * as an opaque url-safe token so clients do not depend on its contents.
+ */
+@Data
+public class DeviceFileCursor {
+
+    private final LocalDateTime dateOfUploading;
+    private final long id;
+
+    public static DeviceFileCursor after(DeviceFileDto fileDto) {
+        return new DeviceFileCursor(fileDto.getDateOfUploading(), fileDto.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by
+     *                                  {@link #encode()}
+     */
+    public static DeviceFileCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new DeviceFileCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException | IndexOutOfBoundsException exception) {
+            throw new IllegalArgumentException("Invalid cursor " + token, exception);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((dateOfUploading + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,15 +5,45 @@ import lombok.NoArgsConstructor;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import java.time.LocalDateTime;
 
+/**
+ * One uploaded csv file, identified by the SHA-256 of its content.
+ * {@code publishedRows} is the number of leading csv rows known to be
+ * published, from which a failed upload of the same content resumes.
+ * The added, changed, unchanged and deleted counts are only filled in by
+ * delta uploads. The unique content hash and the {@code IN_PROGRESS} status
+ * keep two instances from publishing the same content at once.
+ * <p>
+ * Uploads used to be keyed by file name; {@code db/device_file_dto_id.sql}
+ * migrates a table of that version, which ddl-auto=update cannot do.
+ */
 @Entity
 @Data
 @NoArgsConstructor
+@Table(indexes = {
+        @Index(name = "device_file_content_hash_idx", columnList = "contentHash", unique = true),
+        @Index(name = "device_file_date_idx", columnList = "dateOfUploading, id"),
+        @Index(name = "device_file_user_date_idx", columnList = "userName, dateOfUploading, id")})
 public class DeviceFileDto {
 
+    public enum Status {
+        IN_PROGRESS, COMPLETED, FAILED
+    }
+
     @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_file_seq")
+    @SequenceGenerator(name = "device_file_seq", sequenceName = "device_file_seq")
+    private Long id;
+
     private String fileName;
 
     private int deviceCount;
@@ -24,10 +54,38 @@ public class DeviceFileDto {
     @Column(updatable = false)
     private String userName;
 
+    @Column(updatable = false, length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    /**
+     * Time of the last status or checkpoint write; an upload that stays
+     * {@code IN_PROGRESS} without one for too long lost its instance.
+     */
+    private LocalDateTime lastProgressAt;
+
+    private long publishedRows;
+
+    private long addedDevices;
+
+    private long changedDevices;
+
+    private long unchangedDevices;
+
+    private long deletedDevices;
+
     public DeviceFileDto(String fileName, int deviceCount, String userName) {
         this.fileName = fileName;
         this.deviceCount = deviceCount;
         this.dateOfUploading = LocalDateTime.now();
         this.userName = userName;
     }
+
+    public DeviceFileDto(String fileName, String userName, String contentHash) {
+        this(fileName, 0, userName);
+        this.contentHash = contentHash;
+        this.status = Status.IN_PROGRESS;
+    }
 }
@@ -0,0 +1,22 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional restrictions on the upload history; {@code null} fields match
+ * every upload. The upload date range is inclusive at {@code from} and
+ * exclusive at {@code to}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceFileFilter {
+
+    private String userName;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
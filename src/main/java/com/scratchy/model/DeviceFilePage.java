@@ -0,0 +1,18 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the upload history; {@code nextCursor} is {@code null} on
+ * the last page.
+ */
+@Data
+@AllArgsConstructor
+public class DeviceFilePage {
+
+    private List<DeviceFileDto> files;
+    private String nextCursor;
+}
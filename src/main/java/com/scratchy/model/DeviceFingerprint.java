@@ -0,0 +1,42 @@
+package com.scratchy.model;
+
+import com.scratchy.util.Hashes;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Hash of what was last published for a serial number, against which delta
+ * uploads decide whether a device changed. Eight bytes per device instead of
+ * the device itself keeps the table small for large fleets.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceFingerprint {
+
+    @Id
+    private String id;
+
+    private long fingerprint;
+
+    /**
+     * Id of the {@link DeviceFileDto} that last listed the device, so an
+     * upload that deletes missing devices finds them without holding every
+     * listed serial number in memory.
+     */
+    private Long lastUploadId;
+
+    /**
+     * 64-bit hash of the model and description; a missing description and an
+     * empty one, which csv cannot tell apart, hash the same.
+     */
+    public static long of(Device device) {
+        String description = device.getDescription() == null ? "" : device.getDescription();
+        return Hashes.fnv1a64(device.getModel() + '\u001f' + description);
+    }
+}
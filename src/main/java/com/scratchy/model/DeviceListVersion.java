@@ -0,0 +1,22 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Version of the devices listed for one model: a weak ETag over their
+ * content, shared by the json and csv renderings, and the time that content
+ * was first seen.
+ */
+@Data
+@AllArgsConstructor
+public class DeviceListVersion {
+
+    private String eTag;
+
+    private Instant lastModified;
+
+    private Instant computedAt;
+}
@@ -0,0 +1,31 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one serial number in a bulk lookup; {@code status} carries the
+ * HTTP status the single-device endpoint would have answered with.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceLookupResult {
+
+    private String serialNumber;
+    private int status;
+    private Device device;
+
+    public static DeviceLookupResult found(Device device) {
+        return new DeviceLookupResult(device.getId(), 200, device);
+    }
+
+    public static DeviceLookupResult notFound(String serialNumber) {
+        return new DeviceLookupResult(serialNumber, 404, null);
+    }
+
+    public static DeviceLookupResult failed(String serialNumber, int status) {
+        return new DeviceLookupResult(serialNumber, status, null);
+    }
+}
@@ -0,0 +1,60 @@
+package com.scratchy.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import java.time.LocalDateTime;
+
+/**
+ * A {@code device-topic} record waiting to be relayed to Kafka. Rows of an
+ * upload chunk are committed together, before the resume offset of the
+ * {@link DeviceFileDto} moves past the chunk, and deleted once the broker
+ * has acknowledged them.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+public class DeviceOutboxRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_outbox_seq")
+    @SequenceGenerator(name = "device_outbox_seq", sequenceName = "device_outbox_seq",
+            allocationSize = 100)
+    private Long id;
+
+    private String topic;
+
+    private Integer partitionNumber;
+
+    private String recordKey;
+
+    /**
+     * Record value as encoded by the configured {@code DeviceCodec}; null for
+     * the tombstone of a deleted device. Kept in a column of its own, since
+     * schema update does not change the type of the former text
+     * {@code payload} column, which stays unused.
+     */
+    @Column(name = "payload_bytes", length = 16 * 1024 * 1024)
+    private byte[] payload;
+
+    private String format;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    public DeviceOutboxRecord(String topic, Integer partitionNumber, String recordKey,
+                              byte[] payload, String format) {
+        this.topic = topic;
+        this.partitionNumber = partitionNumber;
+        this.recordKey = recordKey;
+        this.payload = payload;
+        this.format = format;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,18 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A rejected csv row; {@code row} counts data records from 1, not counting
+ * the header line.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceValidationError {
+    private long row;
+    private String serialNumber;
+    private String message;
+}
@@ -0,0 +1,184 @@
+package com.scratchy.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a single csv upload. Counters are updated from the upload
+ * thread and the Kafka callback threads while the job is polled.
+ */
+@Getter
+public class UploadJob {
+
+    private static final int MAX_REPORTED_ERRORS = 10_000;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final String fileName;
+    private final String userName;
+    private final String contentHash;
+    private final LocalDateTime createdAt;
+
+    private volatile Status status = Status.QUEUED;
+    /**
+     * Whether the same content had already been uploaded, so nothing was
+     * published again.
+     */
+    private volatile boolean duplicate;
+    /**
+     * Number of leading rows published by an earlier, failed upload of the
+     * same content and skipped by this one.
+     */
+    private volatile long resumedFrom;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    /**
+     * Upload record of a completed job, answered by the synchronous upload.
+     */
+    @JsonIgnore
+    private volatile DeviceFileDto fileDto;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsParsed = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsPublished = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsFailed = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsInvalid = new AtomicLong();
+    /**
+     * Delta uploads only: valid rows split by how they compare with what
+     * earlier uploads published, and devices deleted for being absent.
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsAdded = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsChanged = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsUnchanged = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong recordsDeleted = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private final List<DeviceValidationError> errors = new ArrayList<>();
+
+    public UploadJob(String fileName, String userName, String contentHash) {
+        this.id = UUID.randomUUID().toString();
+        this.fileName = fileName;
+        this.userName = userName;
+        this.contentHash = contentHash;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public long getRecordsParsed() {
+        return recordsParsed.get();
+    }
+
+    public long getRecordsPublished() {
+        return recordsPublished.get();
+    }
+
+    public long getRecordsFailed() {
+        return recordsFailed.get();
+    }
+
+    public long getRecordsInvalid() {
+        return recordsInvalid.get();
+    }
+
+    public long getRecordsAdded() {
+        return recordsAdded.get();
+    }
+
+    public long getRecordsChanged() {
+        return recordsChanged.get();
+    }
+
+    public long getRecordsUnchanged() {
+        return recordsUnchanged.get();
+    }
+
+    public long getRecordsDeleted() {
+        return recordsDeleted.get();
+    }
+
+    /**
+     * Rejected rows, served separately from the job status; only the first
+     * {@value #MAX_REPORTED_ERRORS} are kept.
+     */
+    @JsonIgnore
+    public List<DeviceValidationError> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    public void addParsed(int count) {
+        recordsParsed.addAndGet(count);
+    }
+
+    public void addPublished(int count) {
+        recordsPublished.addAndGet(count);
+    }
+
+    public void addFailed(int count) {
+        recordsFailed.addAndGet(count);
+    }
+
+    public void addDelta(int added, int changed, int unchanged) {
+        recordsAdded.addAndGet(added);
+        recordsChanged.addAndGet(changed);
+        recordsUnchanged.addAndGet(unchanged);
+    }
+
+    public void addDeleted(int count) {
+        recordsDeleted.addAndGet(count);
+    }
+
+    public void addInvalid(DeviceValidationError error) {
+        recordsInvalid.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public void start() {
+        status = Status.RUNNING;
+    }
+
+    public void resumeFrom(long rows) {
+        resumedFrom = rows;
+    }
+
+    public void markDuplicate() {
+        duplicate = true;
+    }
+
+    public void complete(DeviceFileDto fileDto) {
+        this.fileDto = fileDto;
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(Throwable exception) {
+        error = exception.getMessage();
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
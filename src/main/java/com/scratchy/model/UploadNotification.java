@@ -0,0 +1,12 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UploadNotification {
+    private String recipient;
+    private String fileName;
+    private int deviceCount;
+}
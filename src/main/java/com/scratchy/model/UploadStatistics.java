@@ -0,0 +1,21 @@
+package com.scratchy.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Uploads and uploaded devices of one user on one day.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadStatistics {
+
+    private String userName;
+    private LocalDate day;
+    private long uploads;
+    private long devices;
+}
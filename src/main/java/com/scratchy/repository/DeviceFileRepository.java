@@ -3,4 +3,10 @@ package com.scratchy.repository;
 import com.scratchy.model.DeviceFileDto;
 import org.springframework.data.repository.CrudRepository;
 
-public interface DeviceFileRepository extends CrudRepository<DeviceFileDto, String> {}
+import java.util.Optional;
+
+public interface DeviceFileRepository extends CrudRepository<DeviceFileDto, Long>,
+        DeviceFileRepositoryCustom {
+
+    Optional<DeviceFileDto> findByContentHash(String contentHash);
+}
@@ -0,0 +1,29 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.DeviceFileCursor;
+import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.DeviceFileFilter;
+import com.scratchy.model.UploadStatistics;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DeviceFileRepositoryCustom {
+
+    /**
+     * Returns up to {@code limit} uploads ordered by upload date and id,
+     * starting after {@code after} when it is given.
+     */
+    List<DeviceFileDto> findPage(DeviceFileFilter filter, DeviceFileCursor after,
+                                 Sort.Direction direction, int limit);
+
+    List<UploadStatistics> countByUserAndDay(DeviceFileFilter filter);
+
+    /**
+     * Sets the upload back to {@code IN_PROGRESS} unless another upload of
+     * the same content holds it, i.e. it is in progress and made progress
+     * after {@code staleBefore}; returns whether it was taken.
+     */
+    boolean claim(Long id, LocalDateTime staleBefore);
+}
@@ -0,0 +1,114 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.DeviceFileCursor;
+import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.DeviceFileFilter;
+import com.scratchy.model.UploadStatistics;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria queries over the upload history, so that only the filters that
+ * were given end up in the SQL and the (user, date, id) index can serve
+ * both the filter and the keyset order.
+ */
+public class DeviceFileRepositoryCustomImpl implements DeviceFileRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DeviceFileDto> findPage(DeviceFileFilter filter, DeviceFileCursor after,
+                                        Sort.Direction direction, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DeviceFileDto> query = builder.createQuery(DeviceFileDto.class);
+        Root<DeviceFileDto> root = query.from(DeviceFileDto.class);
+        Path<LocalDateTime> date = root.get("dateOfUploading");
+        Path<Long> id = root.get("id");
+
+        List<Predicate> predicates = toPredicates(builder, root, filter);
+        if (after != null) {
+            predicates.add(direction.isAscending()
+                    ? builder.or(builder.greaterThan(date, after.getDateOfUploading()),
+                            builder.and(builder.equal(date, after.getDateOfUploading()),
+                                    builder.greaterThan(id, after.getId())))
+                    : builder.or(builder.lessThan(date, after.getDateOfUploading()),
+                            builder.and(builder.equal(date, after.getDateOfUploading()),
+                                    builder.lessThan(id, after.getId()))));
+        }
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(direction.isAscending()
+                        ? List.of(builder.asc(date), builder.asc(id))
+                        : List.of(builder.desc(date), builder.desc(id)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<UploadStatistics> countByUserAndDay(DeviceFileFilter filter) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UploadStatistics> query = builder.createQuery(UploadStatistics.class);
+        Root<DeviceFileDto> root = query.from(DeviceFileDto.class);
+        Path<String> userName = root.get("userName");
+        Expression<LocalDate> day = root.<LocalDateTime>get("dateOfUploading").as(LocalDate.class);
+        Path<DeviceFileDto.Status> status = root.get("status");
+
+        List<Predicate> predicates = toPredicates(builder, root, filter);
+        // uploads from before statuses were recorded have none
+        predicates.add(builder.or(builder.isNull(status),
+                builder.equal(status, DeviceFileDto.Status.COMPLETED)));
+        query.select(builder.construct(UploadStatistics.class, userName, day,
+                        builder.count(root), builder.sumAsLong(root.<Integer>get("deviceCount"))))
+                .where(predicates.toArray(new Predicate[0]))
+                .groupBy(userName, day)
+                .orderBy(builder.asc(day), builder.asc(userName));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public boolean claim(Long id, LocalDateTime staleBefore) {
+        // a single conditional update, so of two instances only one sees its row change
+        return entityManager.createQuery("update DeviceFileDto f "
+                        + "set f.status = :inProgress, f.lastProgressAt = :now "
+                        + "where f.id = :id and (f.status is null or f.status <> :inProgress "
+                        + "or f.lastProgressAt is null or f.lastProgressAt < :staleBefore)")
+                .setParameter("inProgress", DeviceFileDto.Status.IN_PROGRESS)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", id)
+                .setParameter("staleBefore", staleBefore)
+                .executeUpdate() == 1;
+    }
+
+    private static List<Predicate> toPredicates(CriteriaBuilder builder, Root<DeviceFileDto> root,
+                                                DeviceFileFilter filter) {
+        Path<LocalDateTime> date = root.get("dateOfUploading");
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getUserName() != null) {
+            predicates.add(builder.equal(root.get("userName"), filter.getUserName()));
+        }
+        if (filter.getFrom() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(date, filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            predicates.add(builder.lessThan(date, filter.getTo()));
+        }
+        return predicates;
+    }
+}
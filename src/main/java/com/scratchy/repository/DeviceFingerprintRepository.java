@@ -0,0 +1,8 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.DeviceFingerprint;
+import org.springframework.data.repository.CrudRepository;
+
+public interface DeviceFingerprintRepository extends CrudRepository<DeviceFingerprint, String>,
+        DeviceFingerprintRepositoryCustom {
+}
@@ -0,0 +1,35 @@
+package com.scratchy.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface DeviceFingerprintRepositoryCustom {
+
+    /**
+     * Returns the stored fingerprints of the given serial numbers; serial
+     * numbers without one are absent from the map.
+     */
+    Map<String, Long> findFingerprints(Collection<String> serialNumbers);
+
+    /**
+     * Inserts or overwrites the fingerprints as listed by {@code uploadId},
+     * using one JDBC batch per statement.
+     */
+    void upsertAll(Map<String, Long> fingerprints, long uploadId);
+
+    /**
+     * Records that {@code uploadId} listed the serial numbers; serial numbers
+     * without a fingerprint are ignored.
+     */
+    void markListed(Collection<String> serialNumbers, long uploadId);
+
+    /**
+     * Keyset page, in ascending order, of the fingerprinted serial numbers
+     * that {@code uploadId} did not list, starting after {@code after} or
+     * from the first one if it is null.
+     */
+    List<String> findUnlistedAfter(long uploadId, String after, int limit);
+
+    void deleteAllByIds(Collection<String> serialNumbers);
+}
@@ -0,0 +1,110 @@
+package com.scratchy.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Same update-then-insert batches as {@link DeviceRepositoryCustomImpl}; a
+ * chunk of fingerprints is read with a single {@code in} query.
+ */
+public class DeviceFingerprintRepositoryCustomImpl implements DeviceFingerprintRepositoryCustom {
+
+    private static final String SELECT = "select id, fingerprint from device_fingerprint where id in (:ids)";
+    private static final String UPDATE = "update device_fingerprint"
+            + " set fingerprint = ?, last_upload_id = ? where id = ?";
+    private static final String INSERT = "insert into device_fingerprint"
+            + " (id, fingerprint, last_upload_id) values (?, ?, ?)";
+    private static final String MARK = "update device_fingerprint set last_upload_id = ? where id = ?";
+    private static final String DELETE = "delete from device_fingerprint where id = ?";
+    private static final String UNLISTED = "select id from device_fingerprint"
+            + " where (last_upload_id is null or last_upload_id <> ?)";
+    private static final String FIRST_PAGE = UNLISTED + " order by id limit ?";
+    private static final String NEXT_PAGE = UNLISTED + " and id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public DeviceFingerprintRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public Map<String, Long> findFingerprints(Collection<String> serialNumbers) {
+        Map<String, Long> fingerprints = new HashMap<>();
+        if (serialNumbers.isEmpty()) {
+            return fingerprints;
+        }
+        namedJdbcTemplate.query(SELECT, Map.of("ids", serialNumbers), resultSet -> {
+            fingerprints.put(resultSet.getString(1), resultSet.getLong(2));
+        });
+        return fingerprints;
+    }
+
+    @Override
+    @Transactional
+    public void upsertAll(Map<String, Long> fingerprints, long uploadId) {
+        if (fingerprints.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Long>> ordered = new ArrayList<>(fingerprints.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE, ordered, ordered.size(),
+                (statement, entry) -> {
+                    statement.setLong(1, entry.getValue());
+                    statement.setLong(2, uploadId);
+                    statement.setString(3, entry.getKey());
+                })[0];
+
+        List<Map.Entry<String, Long>> missing = new ArrayList<>();
+        for (int index = 0; index < updated.length; index++) {
+            if (updated[index] == 0) {
+                missing.add(ordered.get(index));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, missing, missing.size(), (statement, entry) -> {
+            statement.setString(1, entry.getKey());
+            statement.setLong(2, entry.getValue());
+            statement.setLong(3, uploadId);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void markListed(Collection<String> serialNumbers, long uploadId) {
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MARK, new ArrayList<>(serialNumbers), serialNumbers.size(),
+                (statement, serialNumber) -> {
+                    statement.setLong(1, uploadId);
+                    statement.setString(2, serialNumber);
+                });
+    }
+
+    @Override
+    public List<String> findUnlistedAfter(long uploadId, String after, int limit) {
+        return after == null
+                ? jdbcTemplate.queryForList(FIRST_PAGE, String.class, uploadId, limit)
+                : jdbcTemplate.queryForList(NEXT_PAGE, String.class, uploadId, after, limit);
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllByIds(Collection<String> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DELETE, new ArrayList<>(serialNumbers), serialNumbers.size(),
+                (statement, serialNumber) -> statement.setString(1, serialNumber));
+    }
+}
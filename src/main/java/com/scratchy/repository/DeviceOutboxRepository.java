@@ -0,0 +1,22 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.DeviceOutboxRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+
+public interface DeviceOutboxRepository extends JpaRepository<DeviceOutboxRecord, Long> {
+
+    /**
+     * Oldest pending records, locked so that relays on other instances skip
+     * them instead of sending them twice.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    List<DeviceOutboxRecord> findAllByOrderByIdAsc(Pageable pageable);
+}
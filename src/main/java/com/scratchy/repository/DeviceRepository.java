@@ -0,0 +1,11 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.Device;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface DeviceRepository extends CrudRepository<Device, String>, DeviceRepositoryCustom {
+
+    List<Device> findAllByModel(String model);
+}
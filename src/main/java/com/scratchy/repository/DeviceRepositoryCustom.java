@@ -0,0 +1,20 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.Device;
+
+import java.util.Collection;
+
+public interface DeviceRepositoryCustom {
+
+    /**
+     * Inserts the devices that are not stored yet and overwrites the ones
+     * that are, using one JDBC batch per statement.
+     */
+    void upsertAll(Collection<Device> devices);
+
+    /**
+     * Deletes the devices with the given serial numbers, ignoring the ones
+     * that are not stored.
+     */
+    void deleteAllByIds(Collection<String> serialNumbers);
+}
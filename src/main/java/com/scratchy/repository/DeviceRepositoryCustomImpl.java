@@ -0,0 +1,68 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.Device;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Plain JDBC batches instead of {@code saveAll}, which would select every
+ * device by id before merging it. An update batch goes first and only the
+ * rows it did not touch are inserted, which works on both H2 and
+ * PostgreSQL without a dialect specific upsert.
+ */
+public class DeviceRepositoryCustomImpl implements DeviceRepositoryCustom {
+
+    private static final String UPDATE = "update device set model = ?, description = ? where id = ?";
+    private static final String INSERT = "insert into device (id, model, description) values (?, ?, ?)";
+    private static final String DELETE = "delete from device where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DeviceRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void upsertAll(Collection<Device> devices) {
+        if (devices.isEmpty()) {
+            return;
+        }
+        List<Device> ordered = new ArrayList<>(devices);
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE, ordered, ordered.size(),
+                (statement, device) -> {
+                    statement.setString(1, device.getModel());
+                    statement.setString(2, device.getDescription());
+                    statement.setString(3, device.getId());
+                })[0];
+
+        List<Device> missing = new ArrayList<>();
+        for (int index = 0; index < updated.length; index++) {
+            if (updated[index] == 0) {
+                missing.add(ordered.get(index));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, missing, missing.size(), (statement, device) -> {
+            statement.setString(1, device.getId());
+            statement.setString(2, device.getModel());
+            statement.setString(3, device.getDescription());
+        });
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllByIds(Collection<String> serialNumbers) {
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DELETE, new ArrayList<>(serialNumbers), serialNumbers.size(),
+                (statement, serialNumber) -> statement.setString(1, serialNumber));
+    }
+}
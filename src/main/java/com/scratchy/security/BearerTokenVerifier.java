@@ -0,0 +1,159 @@
+package com.scratchy.security;
+
+import com.scratchy.config.TokenConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.keycloak.KeycloakPrincipal;
+import org.keycloak.TokenVerifier;
+import org.keycloak.adapters.RefreshableKeycloakSecurityContext;
+import org.keycloak.adapters.springboot.KeycloakSpringBootProperties;
+import org.keycloak.adapters.springsecurity.account.SimpleKeycloakAccount;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.keycloak.common.VerificationException;
+import org.keycloak.representations.AccessToken;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies realm access tokens locally: RS256 signature against
+ * {@link SigningKeys}, issuer, token type and expiry. Tokens that passed are
+ * kept until they expire, so a client repeating its token pays for the
+ * signature check once.
+ * <p>
+ * The resulting authentication is the same {@link KeycloakAuthenticationToken}
+ * the adapter creates, with realm roles as {@code ROLE_} authorities, so
+ * role checks and principal handling do not depend on the mode.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.stateless", havingValue = "true")
+public class BearerTokenVerifier implements SchedulingConfigurer {
+
+    private final TokenConfig config;
+    private final SigningKeys signingKeys;
+    private final String realmUrl;
+    private final String principalAttribute;
+    private final Map<String, KeycloakAuthenticationToken> verified = new ConcurrentHashMap<>();
+
+    private final Counter cacheHits;
+    private final Counter verifications;
+    private final Counter rejections;
+
+    public BearerTokenVerifier(TokenConfig config, SigningKeys signingKeys,
+                               KeycloakSpringBootProperties keycloak, MeterRegistry registry) {
+        this.config = config;
+        this.signingKeys = signingKeys;
+        this.realmUrl = keycloak.getAuthServerUrl() + "/realms/" + keycloak.getRealm();
+        this.principalAttribute = keycloak.getPrincipalAttribute();
+        this.cacheHits = verificationCounter(registry, "cached");
+        this.verifications = verificationCounter(registry, "verified");
+        this.rejections = verificationCounter(registry, "rejected");
+    }
+
+    /**
+     * @throws BadCredentialsException when the token is not a valid access
+     *                                 token of the realm
+     */
+    public KeycloakAuthenticationToken verify(String tokenString) {
+        KeycloakAuthenticationToken authentication = verified.get(tokenString);
+        if (authentication != null && isActive(authentication)) {
+            cacheHits.increment();
+            return authentication;
+        }
+
+        AccessToken token;
+        try {
+            TokenVerifier<AccessToken> verifier = TokenVerifier.create(tokenString, AccessToken.class)
+                    .withDefaultChecks()
+                    .realmUrl(realmUrl);
+            String keyId = verifier.getHeader().getKeyId();
+            if (keyId == null) {
+                throw new VerificationException("Token names no signing key");
+            }
+            PublicKey key = signingKeys.find(keyId)
+                    .orElseThrow(() -> new VerificationException("Token is signed with an unknown key"));
+            token = verifier.publicKey(key).verify().getToken();
+        } catch (VerificationException exception) {
+            rejections.increment();
+            throw new BadCredentialsException("Bearer token is invalid: " + exception.getMessage(),
+                    exception);
+        }
+        verifications.increment();
+
+        authentication = toAuthentication(tokenString, token);
+        remember(tokenString, authentication);
+        return authentication;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::evictExpired, config.getTokenCacheEvictionInterval().toMillis());
+    }
+
+    public void evictExpired() {
+        verified.values().removeIf(authentication -> !isActive(authentication));
+    }
+
+    /**
+     * Skips caching once the cache is full of live tokens rather than
+     * evicting under a lock; the next {@link #evictExpired()} makes room.
+     */
+    private void remember(String tokenString, KeycloakAuthenticationToken authentication) {
+        if (verified.size() >= config.getVerifiedTokenCacheSize()) {
+            evictExpired();
+            if (verified.size() >= config.getVerifiedTokenCacheSize()) {
+                return;
+            }
+        }
+        verified.put(tokenString, authentication);
+    }
+
+    private KeycloakAuthenticationToken toAuthentication(String tokenString, AccessToken token) {
+        Set<String> roles = token.getRealmAccess() == null || token.getRealmAccess().getRoles() == null
+                ? Collections.emptySet()
+                : token.getRealmAccess().getRoles();
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
+        }
+
+        RefreshableKeycloakSecurityContext securityContext = new RefreshableKeycloakSecurityContext(
+                null, null, tokenString, token, null, null, null);
+        KeycloakPrincipal<RefreshableKeycloakSecurityContext> principal =
+                new KeycloakPrincipal<>(principalName(token), securityContext);
+        return new KeycloakAuthenticationToken(
+                new SimpleKeycloakAccount(principal, roles, securityContext), false, authorities);
+    }
+
+    private String principalName(AccessToken token) {
+        if ("preferred_username".equals(principalAttribute) && token.getPreferredUsername() != null) {
+            return token.getPreferredUsername();
+        }
+        if ("email".equals(principalAttribute) && token.getEmail() != null) {
+            return token.getEmail();
+        }
+        return token.getSubject();
+    }
+
+    private static boolean isActive(KeycloakAuthenticationToken authentication) {
+        return authentication.getAccount().getKeycloakSecurityContext().getToken().isActive();
+    }
+
+    private static Counter verificationCounter(MeterRegistry registry, String result) {
+        return Counter.builder("security.token.verifications")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,92 @@
+package com.scratchy.security;
+
+import com.scratchy.config.TokenConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.adapters.springboot.KeycloakSpringBootProperties;
+import org.keycloak.jose.jwk.JSONWebKeySet;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.util.JWKSUtils;
+import org.keycloak.util.JsonSerialization;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The realm's token signing keys, fetched from its certs endpoint and
+ * refreshed periodically so rotated keys are picked up. A token signed with
+ * a key not seen yet triggers an early fetch, at most once per
+ * {@code app.security.unknown-key-refetch-interval}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.security.stateless", havingValue = "true")
+public class SigningKeys implements SchedulingConfigurer {
+
+    private final TokenConfig config;
+    private final WebClient webClient;
+    private final String certsUrl;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile Instant fetchedAt = Instant.EPOCH;
+
+    public SigningKeys(TokenConfig config, KeycloakSpringBootProperties keycloak,
+                       WebClient.Builder webClientBuilder) {
+        this.config = config;
+        this.webClient = webClientBuilder.clone().build();
+        this.certsUrl = keycloak.getAuthServerUrl() + "/realms/" + keycloak.getRealm()
+                + "/protocol/openid-connect/certs";
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::refresh, config.getKeyRefreshInterval().toMillis());
+    }
+
+    public void refresh() {
+        fetch();
+    }
+
+    public Optional<PublicKey> find(String keyId) {
+        PublicKey key = keys.get(keyId);
+        if (key == null && isRefetchAllowed()) {
+            synchronized (this) {
+                if (!keys.containsKey(keyId) && isRefetchAllowed()) {
+                    fetch();
+                }
+            }
+            key = keys.get(keyId);
+        }
+        return Optional.ofNullable(key);
+    }
+
+    private boolean isRefetchAllowed() {
+        return Duration.between(fetchedAt, Instant.now())
+                .compareTo(config.getUnknownKeyRefetchInterval()) >= 0;
+    }
+
+    private synchronized void fetch() {
+        fetchedAt = Instant.now();
+        try {
+            String body = webClient.get()
+                    .uri(certsUrl)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block(config.getKeyFetchTimeout());
+            JSONWebKeySet keySet = JsonSerialization.readValue(body, JSONWebKeySet.class);
+            keys = Map.copyOf(JWKSUtils.getKeysForUse(keySet, JWK.Use.SIG));
+            log.info(keys.size() + " token signing keys were loaded from " + certsUrl);
+        } catch (IOException | RuntimeException exception) {
+            log.warn("During fetching token signing keys something went wrong, keeping "
+                    + keys.size() + " known keys", exception);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.scratchy.service;
+
+import com.scratchy.model.Device;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface DevicePublisher {
+
+    /**
+     * Publishes a chunk of devices; the returned future completes once every
+     * record of the chunk has been acknowledged by the broker.
+     */
+    CompletableFuture<Void> publish(List<Device> devices);
+
+    /**
+     * Publishes a tombstone, a record with the serial number as key and no
+     * value, for every serial number; completes like {@link #publish}.
+     */
+    CompletableFuture<Void> publishDeletions(List<String> serialNumbers);
+}
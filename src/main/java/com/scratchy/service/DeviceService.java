@@ -2,22 +2,34 @@ package com.scratchy.service;
 
 import com.scratchy.model.Device;
 import com.scratchy.model.DeviceFileDto;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.multipart.MultipartFile;
+import com.scratchy.model.DeviceFileFilter;
+import com.scratchy.model.DeviceFilePage;
+import com.scratchy.model.UploadStatistics;
+import com.scratchy.model.UploadJob;
+import org.springframework.data.domain.Sort;
 
-import java.security.Principal;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 
 public interface DeviceService {
 
-    ResponseEntity<Device> getDeviceBySerialNumber(String serialNumber);
+    void writeDeviceListInCsv(Iterable<Device> devices, OutputStream outputStream) throws IOException;
 
-    ResponseEntity<Iterable<Device>> getDeviceListByModelInJson(String model);
+    /**
+     * Publishes the devices of an uploaded csv file. Content that was
+     * uploaded completely before is not published again, and content whose
+     * earlier upload failed resumes after its last published row.
+     */
+    DeviceFileDto createDevicesFromCsv(InputStream inputStream, UploadJob job);
 
-    String getDeviceListByModelInCsv(String model);
+    /**
+     * Returns one page of the upload history, continuing after
+     * {@code cursor} when it is given.
+     */
+    DeviceFilePage getUploadedFiles(DeviceFileFilter filter, String cursor,
+                                    Sort.Direction direction, int size);
 
-    Iterable<Device> createDevicesFromCsvFile(MultipartFile file, Principal principal);
-
-    void sendEmail();
-
-    Iterable<DeviceFileDto> getListOfUploadedFiles();
+    List<UploadStatistics> getUploadStatistics(DeviceFileFilter filter);
 }
@@ -0,0 +1,16 @@
+package com.scratchy.service;
+
+import com.scratchy.model.DeviceFileDto;
+
+import java.security.Principal;
+
+public interface NotificationService {
+
+    /**
+     * Returns the email address of the uploading principal, or {@code null}
+     * when it cannot be determined.
+     */
+    String resolveRecipient(Principal principal);
+
+    void notifyUploadCompleted(String recipient, DeviceFileDto fileDto);
+}
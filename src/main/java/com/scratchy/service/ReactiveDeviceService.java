@@ -0,0 +1,24 @@
+package com.scratchy.service;
+
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceLookupResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveDeviceService {
+
+    /**
+     * Completes empty when the upstream does not know the serial number.
+     */
+    Mono<Device> getDeviceBySerialNumber(String serialNumber);
+
+    Flux<Device> getDeviceListByModel(String model);
+
+    /**
+     * Looks up every distinct serial number, reporting missing or failed ones
+     * per item instead of failing the whole lookup.
+     */
+    Flux<DeviceLookupResult> getDevicesBySerialNumbers(List<String> serialNumbers);
+}
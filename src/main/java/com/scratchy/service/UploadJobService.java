@@ -0,0 +1,20 @@
+package com.scratchy.service;
+
+import com.scratchy.model.UploadJob;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.security.Principal;
+import java.util.Optional;
+
+public interface UploadJobService {
+
+    /**
+     * Runs the upload on the calling thread; the finished job stays
+     * available for fetching its error report.
+     */
+    UploadJob run(MultipartFile file, Principal principal);
+
+    UploadJob submit(MultipartFile file, Principal principal);
+
+    Optional<UploadJob> getJob(String jobId);
+}
@@ -0,0 +1,91 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.model.Device;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects serial number lookups for a short window and resolves them with
+ * one bulk upstream call. A batch is sent when the window closes or when it
+ * reaches its maximum size, whichever comes first.
+ */
+public class DeviceLookupBatcher {
+
+    private final Function<List<String>, Flux<Device>> bulkLookup;
+    private final Duration window;
+    private final int maxSize;
+
+    private final Object lock = new Object();
+    private Map<String, Sinks.One<Device>> pending = new HashMap<>();
+
+    public DeviceLookupBatcher(Function<List<String>, Flux<Device>> bulkLookup,
+                               Duration window, int maxSize) {
+        this.bulkLookup = bulkLookup;
+        this.window = window;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Completes with the device, or empty when the upstream does not know
+     * the serial number.
+     */
+    public Mono<Device> lookup(String serialNumber) {
+        return Mono.defer(() -> {
+            Sinks.One<Device> sink;
+            boolean firstInBatch;
+            Map<String, Sinks.One<Device>> fullBatch = null;
+
+            synchronized (lock) {
+                firstInBatch = pending.isEmpty();
+                sink = pending.computeIfAbsent(serialNumber, key -> Sinks.one());
+                if (pending.size() >= maxSize) {
+                    fullBatch = pending;
+                    pending = new HashMap<>();
+                }
+            }
+
+            if (fullBatch != null) {
+                send(fullBatch);
+            } else if (firstInBatch) {
+                Schedulers.parallel().schedule(this::sendPending, window.toMillis(),
+                        TimeUnit.MILLISECONDS);
+            }
+            return sink.asMono();
+        });
+    }
+
+    private void sendPending() {
+        Map<String, Sinks.One<Device>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        send(batch);
+    }
+
+    private void send(Map<String, Sinks.One<Device>> batch) {
+        bulkLookup.apply(new ArrayList<>(batch.keySet()))
+                .collectMap(Device::getId)
+                .subscribe(devices -> batch.forEach((serialNumber, sink) -> {
+                    Device device = devices.get(serialNumber);
+                    if (device != null) {
+                        sink.tryEmitValue(device);
+                    } else {
+                        sink.tryEmitEmpty();
+                    }
+                }), exception -> batch.values().forEach(sink -> sink.tryEmitError(exception)));
+    }
+}
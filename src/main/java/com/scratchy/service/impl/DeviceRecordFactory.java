@@ -0,0 +1,112 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.codec.DeviceCodec;
+import com.scratchy.config.DeviceTopicConfig;
+import com.scratchy.config.DeviceTopicConfig.PublishMode;
+import com.scratchy.model.Device;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a chunk of devices into {@code device-topic} records according to
+ * the configured {@link PublishMode}.
+ */
+@Component
+public class DeviceRecordFactory {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final DeviceTopicConfig config;
+    private final DeviceCodec codec;
+
+    public DeviceRecordFactory(KafkaTemplate<String, byte[]> kafkaTemplate,
+                               DeviceTopicConfig config, DeviceCodec codec) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.config = config;
+        this.codec = codec;
+    }
+
+    public String getFormat() {
+        return codec.format();
+    }
+
+    public List<ProducerRecord<String, byte[]>> toRecords(List<Device> devices) {
+        return config.getPublishMode() == PublishMode.BATCH
+                ? toBatchRecords(devices)
+                : toDeviceRecords(devices);
+    }
+
+    /**
+     * Tombstones are keyed by serial number in both modes and left to the
+     * default partitioner, which picks the partition the device was
+     * published to.
+     */
+    public List<ProducerRecord<String, byte[]>> toTombstones(List<String> serialNumbers) {
+        List<ProducerRecord<String, byte[]>> records = new ArrayList<>(serialNumbers.size());
+        for (String serialNumber : serialNumbers) {
+            records.add(new ProducerRecord<>(config.getName(), null, serialNumber, null,
+                    formatHeaders()));
+        }
+        return records;
+    }
+
+    private List<ProducerRecord<String, byte[]>> toDeviceRecords(List<Device> devices) {
+        List<ProducerRecord<String, byte[]>> records = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            records.add(new ProducerRecord<>(config.getName(), null, device.getId(),
+                    codec.encode(device), formatHeaders()));
+        }
+        return records;
+    }
+
+    /**
+     * Groups devices by the partition their serial number hashes to, so a
+     * device lands on the same partition in both modes and per-device
+     * ordering is kept. Each batch is keyed by its first serial number.
+     */
+    private List<ProducerRecord<String, byte[]>> toBatchRecords(List<Device> devices) {
+        int partitionCount = kafkaTemplate.partitionsFor(config.getName()).size();
+        Map<Integer, List<Device>> batches = new HashMap<>();
+        List<ProducerRecord<String, byte[]>> records = new ArrayList<>();
+
+        for (Device device : devices) {
+            int partition = partitionFor(device.getId(), partitionCount);
+            List<Device> batch = batches.computeIfAbsent(partition, key -> new ArrayList<>());
+            batch.add(device);
+            if (batch.size() >= config.getBatchSize()) {
+                records.add(toBatchRecord(partition, batch));
+                batches.remove(partition);
+            }
+        }
+        batches.forEach((partition, batch) -> records.add(toBatchRecord(partition, batch)));
+
+        return records;
+    }
+
+    private ProducerRecord<String, byte[]> toBatchRecord(int partition, List<Device> batch) {
+        return new ProducerRecord<>(config.getName(), partition, batch.get(0).getId(),
+                codec.encodeAll(batch), formatHeaders());
+    }
+
+    public Headers formatHeaders() {
+        return new RecordHeaders().add(DeviceCodec.FORMAT_HEADER,
+                codec.format().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Same partition the default partitioner picks for a keyed record.
+     */
+    private static int partitionFor(String key, int partitionCount) {
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8)))
+                % partitionCount;
+    }
+}
@@ -1,55 +1,95 @@
 package com.scratchy.service.impl;
 
-import com.scratchy.config.EnvironmentConfig;
+import com.scratchy.config.UploadConfig;
+import com.scratchy.csv.DeviceCsvReader;
+import com.scratchy.csv.DeviceCsvWriter;
 import com.scratchy.model.Device;
+import com.scratchy.model.DeviceFileCursor;
 import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.DeviceFingerprint;
+import com.scratchy.model.DeviceFileFilter;
+import com.scratchy.model.DeviceFilePage;
+import com.scratchy.model.DeviceValidationError;
+import com.scratchy.model.UploadJob;
+import com.scratchy.model.UploadStatistics;
 import com.scratchy.repository.DeviceFileRepository;
+import com.scratchy.repository.DeviceFingerprintRepository;
+import com.scratchy.service.DevicePublisher;
 import com.scratchy.service.DeviceService;
+import com.scratchy.validation.DeviceValidator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import nonapi.io.github.classgraph.json.JSONSerializer;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.util.concurrent.ListenableFuture;
-import org.springframework.util.concurrent.ListenableFutureCallback;
-import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.security.Principal;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class DeviceServiceImpl implements DeviceService {
 
-    private static final String TOPIC_NAME = "device-topic";
-
-    private final WebClient webClient;
+    private final UploadConfig uploadConfig;
+    private final Timer parseTimer;
+    private final Timer validationTimer;
+    private final Timer saveTimer;
+    private final Counter parsedRows;
+    private final Counter invalidRows;
+    private final Counter addedRows;
+    private final Counter changedRows;
+    private final Counter unchangedRows;
+    private final Counter deletedRows;
 
     private DeviceFileRepository repository;
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private DeviceFingerprintRepository fingerprintRepository;
+    private DevicePublisher publisher;
 
-    private JavaMailSender emailSender;
+    public DeviceServiceImpl(UploadConfig uploadConfig, MeterRegistry registry) {
+        this.uploadConfig = uploadConfig;
+        this.parseTimer = Timer.builder("device.upload.parse")
+                .description("Time to parse one chunk of csv rows")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.validationTimer = Timer.builder("device.upload.validation")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.saveTimer = Timer.builder("device.upload.save")
+                .description("Time to write the upload record to the database")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parsedRows = rowCounter(registry, "parsed");
+        this.invalidRows = rowCounter(registry, "invalid");
+        this.addedRows = rowCounter(registry, "added");
+        this.changedRows = rowCounter(registry, "changed");
+        this.unchangedRows = rowCounter(registry, "unchanged");
+        this.deletedRows = rowCounter(registry, "deleted");
+    }
 
-    public DeviceServiceImpl(EnvironmentConfig config) {
-        this.webClient = WebClient.builder()
-                .baseUrl(config.getUrl() + config.getPort())
-                .build();
+    private static Counter rowCounter(MeterRegistry registry, String result) {
+        return Counter.builder("device.upload.rows")
+                .baseUnit("rows")
+                .tag("result", result)
+                .register(registry);
     }
 
     @Autowired
@@ -58,137 +98,389 @@ public class DeviceServiceImpl implements DeviceService {
     }
 
     @Autowired
-    public void setKafkaTemplate(KafkaTemplate<String, String> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    public void setFingerprintRepository(DeviceFingerprintRepository fingerprintRepository) {
+        this.fingerprintRepository = fingerprintRepository;
     }
 
     @Autowired
-    public void setEmailSender(JavaMailSender emailSender) {
-        this.emailSender = emailSender;
+    public void setPublisher(DevicePublisher publisher) {
+        this.publisher = publisher;
     }
 
     @Override
-    public ResponseEntity<Device> getDeviceBySerialNumber(String serialNumber) {
-        Device device;
-        try {
-            device = webClient.get()
-                    .uri("/api/devices/" + serialNumber)
-                    .retrieve()
-                    .bodyToMono(Device.class)
-                    .block();
-        } catch (WebClientResponseException exception) {
-            return ResponseEntity.status(exception.getStatusCode()).body(null);
+    public void writeDeviceListInCsv(Iterable<Device> devices, OutputStream outputStream)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        try (DeviceCsvWriter csvWriter = new DeviceCsvWriter(writer)) {
+            csvWriter.writeAll(devices);
         }
-
-        return ResponseEntity.ok(device);
-    }
-
-    @Override
-    public ResponseEntity<Iterable<Device>> getDeviceListByModelInJson(String model) {
-        return ResponseEntity.ok().body(getDeviceListByModel(model));
     }
 
+    /**
+     * Streams the file through parsing, validation and publishing with at
+     * most {@code app.upload.max-in-flight-chunks} chunks unacknowledged, so
+     * memory stays flat whatever the file size.
+     * <p>
+     * With outbox delivery every chunk commits its outbox rows in its own
+     * transaction before the resume offset moves past it; direct delivery
+     * holds no transaction while publishing. The offset only advances over
+     * chunks that were published in order; rows after it may be published a
+     * second time on resume.
+     * <p>
+     * In delta mode devices matching the fingerprint of their last published
+     * version are dropped before publishing, and the fingerprints of a chunk
+     * are stored once it is acknowledged, so a failed chunk is published
+     * again by the next upload. Devices the file lists are marked with the
+     * upload id in the fingerprint table rather than remembered in memory.
+     * <p>
+     * An upload of content that is in progress on any instance is rejected
+     * with 409; the upload record is inserted under its unique content hash
+     * or taken over with a conditional update, so only one of two
+     * concurrent uploads gets it.
+     */
     @Override
-    public String getDeviceListByModelInCsv(String model) {
-        List<Device> deviceList = getDeviceListByModel(model);
-        StringBuilder builder = new StringBuilder();
-
-        try (CSVPrinter printer = new CSVPrinter(builder,
-                CSVFormat.DEFAULT.withHeader("id", "model", "description"))) {
-            deviceList.forEach(value -> {
-                try {
-                    printer.printRecord(value.getId(), value.getModel(),
-                            value.getDescription());
-                } catch (IOException exception) {
-                    throw new RuntimeException("During printing record something went wrong..",
-                            exception);
-                }
-            });
-        } catch (IOException exception) {
-            throw new RuntimeException("During creating csv something went wrong..",
-                    exception);
+    public DeviceFileDto createDevicesFromCsv(InputStream inputStream, UploadJob job) {
+        DeviceFileDto fileDto = repository.findByContentHash(job.getContentHash()).orElse(null);
+        if (fileDto == null) {
+            try {
+                fileDto = save(new DeviceFileDto(job.getFileName(), job.getUserName(),
+                        job.getContentHash()));
+            } catch (DataIntegrityViolationException exception) {
+                throw uploadInProgress(job, exception);
+            }
+        } else if (fileDto.getStatus() == DeviceFileDto.Status.COMPLETED) {
+            log.info(job.getFileName() + " has the same content as " + fileDto.getFileName()
+                    + ", skipping publishing");
+            job.markDuplicate();
+            return fileDto;
+        } else if (!repository.claim(fileDto.getId(),
+                LocalDateTime.now().minus(uploadConfig.getStaleUploadTimeout()))) {
+            throw uploadInProgress(job, null);
+        } else {
+            fileDto.setStatus(DeviceFileDto.Status.IN_PROGRESS);
+            fileDto = save(fileDto);
         }
 
-        return builder.toString();
-    }
+        long resumeFrom = fileDto.getPublishedRows();
+        if (resumeFrom > 0) {
+            log.info("Resuming upload of " + job.getFileName() + " after row " + resumeFrom);
+            job.resumeFrom(resumeFrom);
+        }
 
-    private List<Device> getDeviceListByModel(String model) {
-        List<Device> deviceList = Objects.requireNonNull(webClient
-                .get()
-                .uri("/api/devices")
-                .retrieve()
-                .toEntityList(Device.class)
-                .block()).getBody();
+        UploadProgress progress = new UploadProgress(fileDto, resumeFrom);
+        DeviceValidator validator = new DeviceValidator(uploadConfig.getParallelValidationThreshold());
+        Consumer<DeviceValidationError> errors = error -> {
+            invalidRows.increment();
+            job.addInvalid(error);
+        };
+        boolean deleteMissing = uploadConfig.isDelta() && uploadConfig.isDeleteMissing();
+        long uploadId = fileDto.getId();
+        try (DeviceCsvReader reader = new DeviceCsvReader(inputStream)) {
+            log.info("Publishing devices from " + job.getFileName());
+            // generate only parses when downstream asks, so at most max-in-flight-chunks
+            // chunks wait for the broker and the parser stalls behind them
+            Flux<UploadChunk> acknowledged = Flux.<List<Device>>generate(sink -> {
+                        List<Device> chunk = readChunk(reader);
+                        if (chunk.isEmpty()) {
+                            sink.complete();
+                        } else {
+                            sink.next(chunk);
+                        }
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnNext(chunk -> {
+                        if (deleteMissing) {
+                            markListed(chunk, uploadId);
+                        }
+                    })
+                    .map(chunk -> validate(chunk, job, validator, errors, resumeFrom))
+                    .map(chunk -> uploadConfig.isDelta() ? diff(chunk, job) : chunk)
+                    .flatMapSequential(chunk -> publish(chunk, job),
+                            uploadConfig.getMaxInFlightChunks(), 1);
 
-        return deviceList
-                .stream()
-                .filter(value -> value.getModel().equals(model))
-                .collect(Collectors.toList());
-    }
-
-    @Override
-    public Iterable<Device> createDevicesFromCsvFile(MultipartFile file, Principal principal) {
-        List<Device> devices;
-        try {
-            devices = parseCsvFile(file);
-        } catch (IOException exception) {
+            // acknowledgements arrive in file order; consuming them here keeps the
+            // checkpoint writes on the upload thread instead of the producer thread
+            for (UploadChunk chunk : acknowledged.toIterable(1)) {
+                progress.acknowledge(chunk);
+                storeFingerprints(chunk, uploadId);
+                checkpoint(progress);
+            }
+        } catch (IOException | RuntimeException exception) {
+            fail(progress.fileDto, progress.publishedRows);
             throw new RuntimeException("During parsing an csv file an exception occurred",
                     exception);
         }
-        log.info("Sending device list to " + TOPIC_NAME);
-        sendDeviceList(devices);
+        fileDto = progress.fileDto;
+        long publishedRows = progress.publishedRows;
+
+        if (job.getRecordsFailed() > 0) {
+            fail(fileDto, publishedRows);
+            throw new RuntimeException("During publishing devices " + job.getRecordsFailed()
+                    + " devices could not be sent, uploading the same file again resumes after row "
+                    + publishedRows);
+        }
+
+        if (deleteMissing) {
+            try {
+                deleteMissing(uploadId, job);
+            } catch (RuntimeException exception) {
+                fail(fileDto, publishedRows);
+                throw new RuntimeException("During publishing deletions of devices missing from "
+                        + job.getFileName() + " something went wrong", exception);
+            }
+        }
+        if (uploadConfig.isDelta()) {
+            log.info(job.getFileName() + ": " + job.getRecordsAdded() + " devices added, "
+                    + job.getRecordsChanged() + " changed, " + job.getRecordsUnchanged()
+                    + " unchanged, " + job.getRecordsDeleted() + " deleted");
+        }
 
         log.info("Writing new record to the device controller database");
-        DeviceFileDto fileDto = new DeviceFileDto(file.getOriginalFilename(),
-                devices.size(), principal.getName());
-        repository.save(fileDto);
-        return devices;
+        fileDto.setStatus(DeviceFileDto.Status.COMPLETED);
+        fileDto.setPublishedRows(publishedRows);
+        fileDto.setDeviceCount((int) (job.getRecordsParsed() - job.getRecordsInvalid()));
+        fileDto.setAddedDevices(job.getRecordsAdded());
+        fileDto.setChangedDevices(job.getRecordsChanged());
+        fileDto.setUnchangedDevices(job.getRecordsUnchanged());
+        fileDto.setDeletedDevices(job.getRecordsDeleted());
+        return save(fileDto);
     }
 
-    private List<Device> parseCsvFile(MultipartFile file) throws IOException {
-        List<Device> deviceList = new ArrayList<>();
-        CSVParser csvParser = CSVFormat.DEFAULT.withFirstRecordAsHeader()
-                .parse(new InputStreamReader(new ByteArrayInputStream(file.getBytes())));
-        for (CSVRecord record : csvParser) {
-            String id = record.get("id");
-            String model = record.get("model");
-            String description = record.get("description");
-            deviceList.add(new Device(id, model, description));
+    private List<Device> readChunk(DeviceCsvReader reader) {
+        Timer.Sample sample = Timer.start();
+        List<Device> chunk = reader.nextChunk(uploadConfig.getChunkSize());
+        if (!chunk.isEmpty()) {
+            sample.stop(parseTimer);
+            parsedRows.increment(chunk.size());
         }
+        return chunk;
+    }
 
-        return deviceList;
+    private DeviceFileDto save(DeviceFileDto fileDto) {
+        fileDto.setLastProgressAt(LocalDateTime.now());
+        return saveTimer.record(() -> repository.save(fileDto));
     }
 
-    private void sendDeviceList(List<Device> deviceList) {
-        ListenableFuture<SendResult<String, String>> future =
-                kafkaTemplate.send(TOPIC_NAME,
-                        JSONSerializer.serializeObject(deviceList.toArray()));
+    private static ResponseStatusException uploadInProgress(UploadJob job, Exception cause) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "An upload with the same content as "
+                + job.getFileName() + " is already in progress", cause);
+    }
+
+    /**
+     * Validates a parsed chunk; rows before the resume offset are still
+     * validated, so duplicates across it are caught, but not published.
+     */
+    private UploadChunk validate(List<Device> chunk, UploadJob job, DeviceValidator validator,
+                                 Consumer<DeviceValidationError> errors, long resumeFrom) {
+        long firstRow = job.getRecordsParsed();
+        job.addParsed(chunk.size());
+        int skipped = (int) Math.min(Math.max(resumeFrom - firstRow, 0), chunk.size());
+        List<Device> validDevices = validationTimer.record(() -> {
+            validator.validate(chunk.subList(0, skipped), errors);
+            return validator.validate(chunk.subList(skipped, chunk.size()), errors);
+        });
+        return new UploadChunk(validDevices, firstRow + chunk.size());
+    }
 
-        future.addCallback(new ListenableFutureCallback<>() {
-            @Override
-            public void onFailure(Throwable exception) {
-                throw new RuntimeException("During sending message something went wrong",
-                        exception);
+    /**
+     * Marks the stored fingerprints of every row as listed by this upload,
+     * skipped and invalid rows included, so a device is not deleted for a
+     * typo or for lying before the resume offset.
+     */
+    private void markListed(List<Device> chunk, long uploadId) {
+        List<String> serialNumbers = new ArrayList<>(chunk.size());
+        for (Device device : chunk) {
+            if (device.getId() != null && !device.getId().isBlank()) {
+                serialNumbers.add(device.getId());
             }
+        }
+        fingerprintRepository.markListed(serialNumbers, uploadId);
+    }
+
+    /**
+     * Keeps the devices that are new or differ from their stored fingerprint,
+     * with one query per chunk.
+     */
+    private UploadChunk diff(UploadChunk chunk, UploadJob job) {
+        if (chunk.devices.isEmpty()) {
+            return chunk;
+        }
+        List<String> serialNumbers = new ArrayList<>(chunk.devices.size());
+        for (Device device : chunk.devices) {
+            serialNumbers.add(device.getId());
+        }
+        Map<String, Long> stored = fingerprintRepository.findFingerprints(serialNumbers);
 
-            @Override
-            public void onSuccess(SendResult<String, String> stringStringSendResult) {
-                log.info("The device list was successfully sent");
+        List<Device> devices = new ArrayList<>();
+        Map<String, Long> fingerprints = new HashMap<>();
+        int added = 0;
+        int changed = 0;
+        for (Device device : chunk.devices) {
+            long fingerprint = DeviceFingerprint.of(device);
+            Long previous = stored.get(device.getId());
+            if (previous != null && previous == fingerprint) {
+                continue;
             }
-        });
+            if (previous == null) {
+                added++;
+            } else {
+                changed++;
+            }
+            devices.add(device);
+            fingerprints.put(device.getId(), fingerprint);
+        }
+        int unchanged = chunk.devices.size() - devices.size();
+        job.addDelta(added, changed, unchanged);
+        addedRows.increment(added);
+        changedRows.increment(changed);
+        unchangedRows.increment(unchanged);
+        return new UploadChunk(devices, chunk.lastRow, fingerprints);
+    }
+
+    /**
+     * Completes once the broker (or the outbox) has taken the chunk; never
+     * errors, a failed chunk completes with {@code published} unset.
+     */
+    private Mono<UploadChunk> publish(UploadChunk chunk, UploadJob job) {
+        if (chunk.devices.isEmpty()) {
+            chunk.published = true;
+            return Mono.just(chunk);
+        }
+        int chunkSize = chunk.devices.size();
+        return Mono.defer(() -> Mono.fromFuture(publisher.publish(chunk.devices)))
+                .then(Mono.fromCallable(() -> {
+                    job.addPublished(chunkSize);
+                    chunk.published = true;
+                    return chunk;
+                }))
+                .onErrorResume(exception -> {
+                    log.error("During publishing " + chunkSize + " devices something went wrong",
+                            exception);
+                    job.addFailed(chunkSize);
+                    return Mono.just(chunk);
+                });
+    }
+
+    private void storeFingerprints(UploadChunk chunk, long uploadId) {
+        if (chunk.published && !chunk.fingerprints.isEmpty()) {
+            fingerprintRepository.upsertAll(chunk.fingerprints, uploadId);
+        }
+    }
+
+    /**
+     * Publishes deletions for the fingerprinted devices the file did not
+     * list, a chunk of serial numbers at a time, and drops their fingerprints
+     * once the deletions are published.
+     */
+    private void deleteMissing(long uploadId, UploadJob job) {
+        int pageSize = uploadConfig.getChunkSize();
+        String after = null;
+        List<String> missing;
+        do {
+            missing = fingerprintRepository.findUnlistedAfter(uploadId, after, pageSize);
+            if (missing.isEmpty()) {
+                break;
+            }
+            after = missing.get(missing.size() - 1);
+
+            List<String> deletions = missing;
+            publisher.publishDeletions(deletions).join();
+            fingerprintRepository.deleteAllByIds(deletions);
+            job.addDeleted(deletions.size());
+            deletedRows.increment(deletions.size());
+        } while (missing.size() == pageSize);
+    }
+
+    private void checkpoint(UploadProgress progress) {
+        if (progress.publishedRows - progress.checkpointedRows < uploadConfig.getCheckpointRows()) {
+            return;
+        }
+        progress.fileDto.setPublishedRows(progress.publishedRows);
+        progress.fileDto = save(progress.fileDto);
+        progress.checkpointedRows = progress.publishedRows;
+    }
+
+    private void fail(DeviceFileDto fileDto, long publishedRows) {
+        fileDto.setStatus(DeviceFileDto.Status.FAILED);
+        fileDto.setPublishedRows(publishedRows);
+        save(fileDto);
     }
 
     @Override
-    public void sendEmail() {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo("some_mail@test.mail");
-        message.setSubject("CSV was uploaded");
-        message.setText("Your csv file was successfully uploaded");
-        emailSender.send(message);
+    public DeviceFilePage getUploadedFiles(DeviceFileFilter filter, String cursor,
+                                           Sort.Direction direction, int size) {
+        if (size < 1 || size > uploadConfig.getHistoryMaxPageSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page size must be between 1 and " + uploadConfig.getHistoryMaxPageSize());
+        }
+        DeviceFileCursor after;
+        try {
+            after = cursor == null ? null : DeviceFileCursor.decode(cursor);
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage(),
+                    exception);
+        }
+
+        // one extra row tells whether there is a next page
+        List<DeviceFileDto> files = repository.findPage(filter, after, direction, size + 1);
+        if (files.size() <= size) {
+            return new DeviceFilePage(files, null);
+        }
+        files = files.subList(0, size);
+        return new DeviceFilePage(files, DeviceFileCursor.after(files.get(size - 1)).encode());
     }
 
     @Override
-    public Iterable<DeviceFileDto> getListOfUploadedFiles() {
-        return repository.findAll();
+    public List<UploadStatistics> getUploadStatistics(DeviceFileFilter filter) {
+        return repository.countByUserAndDay(filter);
+    }
+
+    private static final class UploadChunk {
+
+        private final List<Device> devices;
+        private final long lastRow;
+        /**
+         * Fingerprints to store once the chunk is published; empty outside
+         * delta mode.
+         */
+        private final Map<String, Long> fingerprints;
+        private volatile boolean published;
+
+        private UploadChunk(List<Device> devices, long lastRow) {
+            this(devices, lastRow, Map.of());
+        }
+
+        private UploadChunk(List<Device> devices, long lastRow, Map<String, Long> fingerprints) {
+            this.devices = devices;
+            this.lastRow = lastRow;
+            this.fingerprints = fingerprints;
+        }
+    }
+
+    /**
+     * Resume offset of a running upload: the last row of the leading chunks
+     * that were all published.
+     */
+    private static final class UploadProgress {
+
+        private DeviceFileDto fileDto;
+        private long publishedRows;
+        private long checkpointedRows;
+        private boolean gap;
+
+        private UploadProgress(DeviceFileDto fileDto, long resumeFrom) {
+            this.fileDto = fileDto;
+            this.publishedRows = resumeFrom;
+            this.checkpointedRows = resumeFrom;
+        }
+
+        private void acknowledge(UploadChunk chunk) {
+            if (!chunk.published) {
+                gap = true;
+            }
+            if (!gap) {
+                publishedRows = Math.max(publishedRows, chunk.lastRow);
+            }
+        }
     }
 }
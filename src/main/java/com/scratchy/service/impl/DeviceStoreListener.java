@@ -0,0 +1,230 @@
+package com.scratchy.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scratchy.codec.BinaryDeviceCodec;
+import com.scratchy.codec.DeviceCodec;
+import com.scratchy.codec.JsonDeviceCodec;
+import com.scratchy.model.Device;
+import com.scratchy.repository.DeviceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Consumes {@code device-topic} in batches into the local device table.
+ * Records are decoded by their {@code device-format} header, so producers
+ * can switch formats without draining the topic first; records without the
+ * header predate it and are JSON. A tombstone, a record without a value,
+ * deletes the device named by its key.
+ * <p>
+ * Every instance consumes all partitions under its own group id, derived
+ * from {@code app.device-store.instance-id}, so its table covers the whole
+ * topic rather than the share of one member of a shared group. The id must
+ * stay the same across restarts: the group then resumes from its committed
+ * offsets instead of replaying the topic. A table found empty, because it
+ * was dropped or the database is new, is rebuilt from the earliest offset
+ * whatever the group committed.
+ * <p>
+ * The store is complete once every partition has been consumed up to the
+ * end offset it had when it was assigned; a partition whose records were
+ * deleted by retention before this store got to them never is. The end
+ * offsets are taken when partitions are assigned, so an empty topic is
+ * complete without any batch arriving.
+ * <p>
+ * A device always hashes to the same partition, so only one container
+ * thread writes a given serial number. Offsets are committed once a batch
+ * was written (ack mode BATCH); a batch whose write fails is sought back
+ * and delivered again by the error handler from {@code KafkaTopicConfig}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.device-store.enabled", havingValue = "true")
+public class DeviceStoreListener implements ConsumerAwareRebalanceListener {
+
+    private final DeviceRepository repository;
+    private final Map<String, DeviceCodec> codecs;
+    private final Timer upsertTimer;
+    private final Counter skippedRecords;
+
+    /**
+     * End offset each partition must be consumed up to before the store
+     * holds everything published before it; {@link Long#MAX_VALUE} for a
+     * partition that can no longer be replayed in full.
+     */
+    private final Map<TopicPartition, Long> replayTargets = new HashMap<>();
+    private final Set<TopicPartition> replayedPartitions = new HashSet<>();
+    private int partitionCount;
+    private Boolean rebuild;
+    private volatile boolean complete;
+
+    public DeviceStoreListener(DeviceRepository repository, ObjectMapper objectMapper,
+                               MeterRegistry registry) {
+        this.repository = repository;
+        this.codecs = Map.of(
+                JsonDeviceCodec.FORMAT, new JsonDeviceCodec(objectMapper),
+                BinaryDeviceCodec.FORMAT, new BinaryDeviceCodec());
+        this.upsertTimer = Timer.builder("device.store.upsert")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.skippedRecords = Counter.builder("device.store.skipped")
+                .register(registry);
+    }
+
+    /**
+     * Whether the table holds every device published on the topic before this
+     * instance started consuming, so a model missing from it has no devices
+     * that went through the topic.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @KafkaListener(topics = "${app.kafka.topic.name}", groupId = "${app.device-store.group-id}",
+            properties = "auto.offset.reset=earliest")
+    public void consume(List<ConsumerRecord<String, byte[]>> records, Consumer<?, ?> consumer) {
+        // later records of a partition win, so a batch stores or deletes each device
+        // once; a null value marks a deletion
+        Map<String, Device> devices = new LinkedHashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            if (record.value() == null && record.key() != null) {
+                devices.put(record.key(), null);
+                continue;
+            }
+            for (Device device : decode(record)) {
+                devices.put(device.getId(), device);
+            }
+        }
+
+        List<Device> stored = new ArrayList<>(devices.size());
+        List<String> deleted = new ArrayList<>();
+        devices.forEach((serialNumber, device) -> {
+            if (device == null) {
+                deleted.add(serialNumber);
+            } else {
+                stored.add(device);
+            }
+        });
+        upsertTimer.record(() -> {
+            repository.upsertAll(stored);
+            repository.deleteAllByIds(deleted);
+        });
+        log.info(stored.size() + " devices from " + records.size() + " records were stored, "
+                + deleted.size() + " were deleted");
+        if (!complete) {
+            trackReplay(consumer, consumer.assignment());
+        }
+    }
+
+    /**
+     * Takes the replay target of each partition the first time it is
+     * assigned to one of the containers; a partition moving between them
+     * keeps its target. Partitions that are empty count as replayed right
+     * away.
+     */
+    @Override
+    public synchronized void onPartitionsAssigned(Consumer<?, ?> consumer,
+                                                  Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        partitionCount = consumer.partitionsFor(partitions.iterator().next().topic()).size();
+        List<TopicPartition> unseen = new ArrayList<>();
+        for (TopicPartition partition : partitions) {
+            if (!replayTargets.containsKey(partition)) {
+                unseen.add(partition);
+            }
+        }
+        if (!unseen.isEmpty()) {
+            takeReplayTargets(consumer, unseen);
+        }
+        trackReplay(consumer, partitions);
+    }
+
+    /**
+     * Whether the table is rebuilt is decided once, before any container
+     * wrote to it. An empty collection would make seekToBeginning move every
+     * assigned partition, so it is only called with partitions not seen yet.
+     */
+    private void takeReplayTargets(Consumer<?, ?> consumer, List<TopicPartition> unseen) {
+        if (rebuild == null) {
+            rebuild = repository.count() == 0;
+        }
+        if (rebuild) {
+            consumer.seekToBeginning(unseen);
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(unseen));
+        Map<TopicPartition, Long> beginnings = consumer.beginningOffsets(unseen);
+        Map<TopicPartition, Long> ends = consumer.endOffsets(unseen);
+        for (TopicPartition partition : unseen) {
+            OffsetAndMetadata offset = committed.get(partition);
+            long start = rebuild || offset == null ? 0 : offset.offset();
+            long target = ends.get(partition);
+            if (start < beginnings.get(partition)) {
+                log.warn("Records of " + partition + " from offset " + start + " to "
+                        + beginnings.get(partition)
+                        + " were deleted, by-model reads keep going to the upstream");
+                target = Long.MAX_VALUE;
+            }
+            replayTargets.put(partition, target);
+        }
+    }
+
+    private synchronized void trackReplay(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            Long target = replayTargets.get(partition);
+            if (target != null && consumer.position(partition) >= target) {
+                replayedPartitions.add(partition);
+            }
+        }
+        if (!complete && partitionCount > 0 && replayedPartitions.size() == partitionCount) {
+            complete = true;
+            log.info("Device store caught up with all " + partitionCount + " partitions");
+        }
+    }
+
+    /**
+     * Skips records that cannot be decoded instead of failing the batch,
+     * which would otherwise be redelivered forever.
+     */
+    private List<Device> decode(ConsumerRecord<String, byte[]> record) {
+        Header header = record.headers().lastHeader(DeviceCodec.FORMAT_HEADER);
+        String format = header == null ? JsonDeviceCodec.FORMAT
+                : new String(header.value(), StandardCharsets.UTF_8);
+        DeviceCodec codec = codecs.get(format);
+        if (codec == null || record.value() == null) {
+            skippedRecords.increment();
+            log.warn("Skipping record " + record.topic() + "-" + record.partition() + "@"
+                    + record.offset() + " with unknown format " + format);
+            return List.of();
+        }
+        try {
+            return codec.decode(record.value());
+        } catch (RuntimeException exception) {
+            skippedRecords.increment();
+            log.warn("During decoding record " + record.topic() + "-" + record.partition() + "@"
+                    + record.offset() + " something went wrong", exception);
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.model.Device;
+import com.scratchy.service.DevicePublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "app.kafka.delivery", havingValue = "direct", matchIfMissing = true)
+public class KafkaDevicePublisher implements DevicePublisher {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final DeviceRecordFactory recordFactory;
+    private final Timer sendSuccesses;
+    private final Timer sendFailures;
+
+    public KafkaDevicePublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                                DeviceRecordFactory recordFactory,
+                                MeterRegistry registry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.recordFactory = recordFactory;
+        this.sendSuccesses = sendTimer(registry, "success");
+        this.sendFailures = sendTimer(registry, "failure");
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(List<Device> devices) {
+        return send(recordFactory.toRecords(devices), devices.size() + " devices");
+    }
+
+    @Override
+    public CompletableFuture<Void> publishDeletions(List<String> serialNumbers) {
+        return send(recordFactory.toTombstones(serialNumbers),
+                serialNumbers.size() + " device deletions");
+    }
+
+    private CompletableFuture<Void> send(List<ProducerRecord<String, byte[]>> records,
+                                         String description) {
+        List<CompletableFuture<?>> futures = new ArrayList<>(records.size());
+        for (ProducerRecord<String, byte[]> record : records) {
+            Timer.Sample sample = Timer.start();
+            futures.add(kafkaTemplate.send(record).completable()
+                    .whenComplete((result, exception) ->
+                            sample.stop(exception == null ? sendSuccesses : sendFailures)));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((result, exception) -> {
+                    if (exception != null) {
+                        log.error("During sending devices something went wrong", exception);
+                    } else {
+                        log.info(description + " were successfully sent");
+                    }
+                });
+    }
+
+    private static Timer sendTimer(MeterRegistry registry, String result) {
+        return Timer.builder("device.kafka.send")
+                .tag("delivery", "direct")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,184 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.config.NotificationConfig;
+import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.UploadNotification;
+import com.scratchy.service.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.KeycloakPrincipal;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Queues upload notifications in memory and sends them from the scheduler
+ * thread. Notifications for the same recipient that are waiting together
+ * are coalesced into one digest email, and failed sends are retried with
+ * exponential backoff.
+ */
+@Service
+@Slf4j
+public class NotificationServiceImpl implements NotificationService, SchedulingConfigurer {
+
+    private final NotificationConfig config;
+    private final JavaMailSender emailSender;
+    private final Timer sendSuccesses;
+    private final Timer sendFailures;
+
+    private final BlockingQueue<UploadNotification> queue;
+
+    /**
+     * Digests waiting to be sent, by recipient. Only touched from
+     * {@link #flush()}, which the scheduler never runs concurrently.
+     */
+    private final Map<String, Digest> pending = new LinkedHashMap<>();
+
+    public NotificationServiceImpl(NotificationConfig config, JavaMailSender emailSender,
+                                   MeterRegistry registry) {
+        this.config = config;
+        this.emailSender = emailSender;
+        this.sendSuccesses = sendTimer(registry, "success");
+        this.sendFailures = sendTimer(registry, "failure");
+        this.queue = new LinkedBlockingQueue<>(config.getQueueCapacity());
+    }
+
+    @Override
+    public String resolveRecipient(Principal principal) {
+        if (principal instanceof KeycloakAuthenticationToken) {
+            Object keycloakPrincipal = ((KeycloakAuthenticationToken) principal).getPrincipal();
+            if (keycloakPrincipal instanceof KeycloakPrincipal) {
+                String email = ((KeycloakPrincipal<?>) keycloakPrincipal)
+                        .getKeycloakSecurityContext().getToken().getEmail();
+                if (email != null) {
+                    return email;
+                }
+            }
+        }
+        if (principal == null) {
+            return null;
+        }
+        if (principal.getName().contains("@")) {
+            return principal.getName();
+        }
+        return config.getDefaultDomain() == null ? null
+                : principal.getName() + "@" + config.getDefaultDomain();
+    }
+
+    @Override
+    public void notifyUploadCompleted(String recipient, DeviceFileDto fileDto) {
+        if (recipient == null) {
+            log.info("No email address known for " + fileDto.getUserName() + ", skipping notification");
+            return;
+        }
+        if (!queue.offer(new UploadNotification(recipient, fileDto.getFileName(),
+                fileDto.getDeviceCount()))) {
+            log.warn("Notification queue is full, dropping notification for " + recipient);
+        }
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::flush, config.getFlushInterval().toMillis());
+    }
+
+    public void flush() {
+        List<UploadNotification> notifications = new ArrayList<>();
+        queue.drainTo(notifications);
+        for (UploadNotification notification : notifications) {
+            pending.computeIfAbsent(notification.getRecipient(), Digest::new)
+                    .notifications.add(notification);
+        }
+
+        Instant now = Instant.now();
+        Iterator<Digest> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            Digest digest = iterator.next();
+            if (digest.nextAttemptAt.isAfter(now)) {
+                continue;
+            }
+            Timer.Sample sample = Timer.start();
+            try {
+                emailSender.send(toMessage(digest));
+                sample.stop(sendSuccesses);
+                iterator.remove();
+            } catch (MailException exception) {
+                sample.stop(sendFailures);
+                digest.attempts++;
+                if (digest.attempts >= config.getMaxAttempts()) {
+                    log.error("Giving up on notifying " + digest.recipient + " after "
+                            + digest.attempts + " attempts", exception);
+                    iterator.remove();
+                } else {
+                    digest.nextAttemptAt = now.plus(backoff(digest.attempts));
+                    log.warn("Notifying " + digest.recipient + " failed, retrying at "
+                            + digest.nextAttemptAt, exception);
+                }
+            }
+        }
+    }
+
+    private SimpleMailMessage toMessage(Digest digest) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(config.getFrom());
+        message.setTo(digest.recipient);
+        if (digest.notifications.size() == 1) {
+            UploadNotification notification = digest.notifications.get(0);
+            message.setSubject("CSV was uploaded");
+            message.setText("Your csv file " + notification.getFileName() + " with "
+                    + notification.getDeviceCount() + " devices was successfully uploaded");
+        } else {
+            StringBuilder text = new StringBuilder("Your csv files were successfully uploaded:\n");
+            for (UploadNotification notification : digest.notifications) {
+                text.append(" - ").append(notification.getFileName()).append(" (")
+                        .append(notification.getDeviceCount()).append(" devices)\n");
+            }
+            message.setSubject(digest.notifications.size() + " CSV files were uploaded");
+            message.setText(text.toString());
+        }
+        return message;
+    }
+
+    private static Timer sendTimer(MeterRegistry registry, String result) {
+        return Timer.builder("notification.mail.send")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Duration backoff(int attempts) {
+        long initial = config.getInitialBackoff().toMillis();
+        long delay = Math.min(config.getMaxBackoff().toMillis(),
+                initial << Math.min(attempts - 1, 20));
+        return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+    }
+
+    private static final class Digest {
+
+        private final String recipient;
+        private final List<UploadNotification> notifications = new ArrayList<>();
+        private int attempts;
+        private Instant nextAttemptAt = Instant.MIN;
+
+        private Digest(String recipient) {
+            this.recipient = recipient;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceOutboxRecord;
+import com.scratchy.repository.DeviceOutboxRepository;
+import com.scratchy.service.DevicePublisher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes the device records of one chunk to the outbox table in a
+ * transaction of their own; {@link OutboxRelay} delivers them to Kafka
+ * after the commit. Each chunk commits on its own, not together with the
+ * upload record, which is written later and only moves the resume offset past
+ * chunks already committed; a crash in between republishes rows, it never
+ * loses them.
+ */
+@Service
+@ConditionalOnProperty(name = "app.kafka.delivery", havingValue = "outbox")
+public class OutboxDevicePublisher implements DevicePublisher {
+
+    private final DeviceOutboxRepository repository;
+    private final DeviceRecordFactory recordFactory;
+    private final Timer writeTimer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public OutboxDevicePublisher(DeviceOutboxRepository repository,
+                                 DeviceRecordFactory recordFactory,
+                                 MeterRegistry registry) {
+        this.repository = repository;
+        this.recordFactory = recordFactory;
+        this.writeTimer = Timer.builder("device.outbox.write")
+                .description("Time to write the outbox records of one chunk")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    @Transactional
+    public CompletableFuture<Void> publish(List<Device> devices) {
+        return write(recordFactory.toRecords(devices));
+    }
+
+    @Override
+    @Transactional
+    public CompletableFuture<Void> publishDeletions(List<String> serialNumbers) {
+        return write(recordFactory.toTombstones(serialNumbers));
+    }
+
+    private CompletableFuture<Void> write(List<ProducerRecord<String, byte[]>> records) {
+        List<DeviceOutboxRecord> outboxRecords = new ArrayList<>(records.size());
+        for (ProducerRecord<String, byte[]> record : records) {
+            outboxRecords.add(new DeviceOutboxRecord(record.topic(), record.partition(),
+                    record.key(), record.value(), recordFactory.getFormat()));
+        }
+        writeTimer.record(() -> {
+            repository.saveAll(outboxRecords);
+            // keeps the persistence context of a long upload from growing with every chunk
+            entityManager.flush();
+            entityManager.clear();
+        });
+        return CompletableFuture.completedFuture(null);
+    }
+}
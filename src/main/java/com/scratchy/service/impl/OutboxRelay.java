@@ -0,0 +1,116 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.codec.DeviceCodec;
+import com.scratchy.config.OutboxConfig;
+import com.scratchy.model.DeviceOutboxRecord;
+import com.scratchy.repository.DeviceOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox table to Kafka in batches. A batch is deleted only after
+ * every record in it has been acknowledged; on failure the transaction
+ * rolls back and the same rows are sent again on the next poll.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.kafka.delivery", havingValue = "outbox")
+public class OutboxRelay implements SchedulingConfigurer {
+
+    private final DeviceOutboxRepository repository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxConfig config;
+    private final Timer sendSuccesses;
+    private final Timer sendFailures;
+
+    public OutboxRelay(DeviceOutboxRepository repository,
+                       KafkaTemplate<String, byte[]> kafkaTemplate,
+                       TransactionTemplate transactionTemplate,
+                       OutboxConfig config,
+                       MeterRegistry registry) {
+        this.repository = repository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        this.sendSuccesses = sendTimer(registry, "success");
+        this.sendFailures = sendTimer(registry, "failure");
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::relay, config.getPollInterval().toMillis());
+    }
+
+    public void relay() {
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            } while (relayed != null && relayed == config.getBatchSize());
+        } catch (RuntimeException exception) {
+            log.warn("Relaying outbox records failed, retrying on next poll", exception);
+        }
+    }
+
+    private int relayBatch() {
+        List<DeviceOutboxRecord> batch =
+                repository.findAllByOrderByIdAsc(PageRequest.of(0, config.getBatchSize()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>(batch.size());
+        for (DeviceOutboxRecord record : batch) {
+            Timer.Sample sample = Timer.start();
+            Headers headers = new RecordHeaders().add(DeviceCodec.FORMAT_HEADER,
+                    record.getFormat().getBytes(StandardCharsets.UTF_8));
+            futures.add(kafkaTemplate.send(new ProducerRecord<>(record.getTopic(),
+                    record.getPartitionNumber(), record.getRecordKey(), record.getPayload(), headers))
+                    .completable()
+                    .whenComplete((result, exception) ->
+                            sample.stop(exception == null ? sendSuccesses : sendFailures)));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                    .get(config.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Relaying outbox records was interrupted", exception);
+        } catch (ExecutionException | TimeoutException exception) {
+            throw new RuntimeException("During sending outbox records something went wrong",
+                    exception);
+        }
+
+        repository.deleteInBatch(batch);
+        log.info(batch.size() + " outbox records were relayed");
+        return batch.size();
+    }
+
+    private static Timer sendTimer(MeterRegistry registry, String result) {
+        return Timer.builder("device.kafka.send")
+                .tag("delivery", "outbox")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
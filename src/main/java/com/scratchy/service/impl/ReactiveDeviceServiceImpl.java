@@ -0,0 +1,260 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.cache.DeviceCatalog;
+import com.scratchy.cache.LastKnownDevices;
+import com.scratchy.config.EnvironmentConfig;
+import com.scratchy.config.UpstreamConfig;
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceLookupResult;
+import com.scratchy.repository.DeviceRepository;
+import com.scratchy.service.ReactiveDeviceService;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class ReactiveDeviceServiceImpl implements ReactiveDeviceService, SchedulingConfigurer {
+
+    private final WebClient webClient;
+    private final EnvironmentConfig config;
+    private final UpstreamConfig upstreamConfig;
+
+    /**
+     * Upstream lookups currently in flight, so concurrent requests for the
+     * same serial number share one call.
+     */
+    private final Map<String, Mono<Device>> inFlight = new ConcurrentHashMap<>();
+    private final DeviceLookupBatcher batcher;
+    private final UpstreamResilience resilience;
+    private final LastKnownDevices lastKnownDevices;
+
+    private DeviceCatalog catalog;
+    private DeviceRepository deviceRepository;
+    private DeviceStoreListener deviceStore;
+
+    /**
+     * Takes the Boot-configured builder, which records
+     * {@code http.client.requests} timings per uri template.
+     */
+    public ReactiveDeviceServiceImpl(WebClient.Builder webClientBuilder, EnvironmentConfig config,
+                                     UpstreamConfig upstreamConfig) {
+        this.config = config;
+        this.upstreamConfig = upstreamConfig;
+        this.webClient = webClientBuilder.clone()
+                .baseUrl(config.getUrl() + config.getPort())
+                .clientConnector(new ReactorClientHttpConnector(createHttpClient(upstreamConfig)))
+                .build();
+        this.resilience = new UpstreamResilience(upstreamConfig);
+        this.lastKnownDevices = new LastKnownDevices(upstreamConfig.getLastKnownSize());
+        this.batcher = upstreamConfig.isBatchLookups()
+                ? new DeviceLookupBatcher(this::findDevicesBySerialNumbers,
+                        upstreamConfig.getBatchWindow(), upstreamConfig.getBatchMaxSize())
+                : null;
+    }
+
+    private static HttpClient createHttpClient(UpstreamConfig upstreamConfig) {
+        ConnectionProvider provider = ConnectionProvider.builder("device-upstream")
+                .maxConnections(upstreamConfig.getMaxConnections())
+                .pendingAcquireMaxCount(upstreamConfig.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(upstreamConfig.getPendingAcquireTimeout())
+                .maxIdleTime(upstreamConfig.getMaxIdleTime())
+                .maxLifeTime(upstreamConfig.getMaxLifeTime())
+                .build();
+
+        return HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                        (int) upstreamConfig.getConnectTimeout().toMillis())
+                .responseTimeout(upstreamConfig.getResponseTimeout());
+    }
+
+    @Autowired
+    public void setCatalog(DeviceCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Autowired
+    public void setDeviceRepository(DeviceRepository deviceRepository) {
+        this.deviceRepository = deviceRepository;
+    }
+
+    /**
+     * Absent unless {@code app.device-store.enabled} is set; without it
+     * lookups skip the local table altogether.
+     */
+    @Autowired(required = false)
+    public void setDeviceStore(DeviceStoreListener deviceStore) {
+        this.deviceStore = deviceStore;
+    }
+
+    public UpstreamResilience getResilience() {
+        return resilience;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::refreshCatalog, catalog.getRefreshInterval().toMillis());
+    }
+
+    public void refreshCatalog() {
+        if (!catalog.isEnabled() || resilience.isOpen()) {
+            return;
+        }
+        catalog.refresh(resilience.guard(webClient.get()
+                .uri("/api/devices")
+                .retrieve()
+                .bodyToFlux(Device.class), upstreamConfig.getTimeouts().getFeed()));
+    }
+
+    @Override
+    public Mono<Device> getDeviceBySerialNumber(String serialNumber) {
+        return Mono.defer(() -> catalog.findBySerialNumber(serialNumber)
+                .map(Mono::just)
+                .orElseGet(() -> findStoredDevice(serialNumber)
+                        .switchIfEmpty(Mono.defer(() -> inFlight.computeIfAbsent(serialNumber, key ->
+                                findDeviceBySerialNumber(key)
+                                        .doOnNext(lastKnownDevices::put)
+                                        .onErrorResume(CallNotPermittedException.class,
+                                                exception -> findLastKnownDevice(key, exception))
+                                        .doFinally(signal -> inFlight.remove(key))
+                                        .cache())))));
+    }
+
+    /**
+     * Devices consumed from {@code device-topic} are answered from the local
+     * table; the upstream is only asked for the ones this edge has not seen.
+     */
+    private Mono<Device> findStoredDevice(String serialNumber) {
+        if (deviceStore == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> deviceRepository.findById(serialNumber).orElse(null))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Serves a device from an earlier lookup or catalog snapshot while the
+     * circuit breaker keeps calls away from the upstream.
+     */
+    private Mono<Device> findLastKnownDevice(String serialNumber, CallNotPermittedException exception) {
+        Optional<Device> device = lastKnownDevices.get(serialNumber)
+                .or(() -> catalog.findLastKnownBySerialNumber(serialNumber));
+        if (device.isEmpty()) {
+            return Mono.error(exception);
+        }
+        log.info("Upstream circuit is open, serving last known device " + serialNumber);
+        return Mono.just(device.get());
+    }
+
+    @Override
+    public Flux<DeviceLookupResult> getDevicesBySerialNumbers(List<String> serialNumbers) {
+        if (serialNumbers.size() > upstreamConfig.getBulkMaxSize()) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + upstreamConfig.getBulkMaxSize() + " serial numbers per lookup"));
+        }
+
+        return Flux.fromIterable(serialNumbers)
+                .distinct()
+                .flatMapSequential(serialNumber -> getDeviceBySerialNumber(serialNumber)
+                        .map(DeviceLookupResult::found)
+                        .defaultIfEmpty(DeviceLookupResult.notFound(serialNumber))
+                        .onErrorResume(exception -> Mono.just(DeviceLookupResult.failed(serialNumber,
+                                UpstreamResilience.statusOf(exception).value()))),
+                        upstreamConfig.getBulkParallelism());
+    }
+
+    private Mono<Device> findDeviceBySerialNumber(String serialNumber) {
+        if (batcher != null) {
+            return batcher.lookup(serialNumber);
+        }
+        return resilience.guard(webClient.get()
+                .uri("/api/devices/{serialNumber}", serialNumber)
+                .retrieve()
+                .bodyToMono(Device.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, exception -> Mono.empty()),
+                upstreamConfig.getTimeouts().getDevice());
+    }
+
+    private Flux<Device> findDevicesBySerialNumbers(List<String> serialNumbers) {
+        return resilience.guard(webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/devices")
+                        .queryParam("id", serialNumbers.toArray())
+                        .build())
+                .retrieve()
+                .bodyToFlux(Device.class)
+                .collectList(), upstreamConfig.getTimeouts().getBulk())
+                .flatMapIterable(devices -> devices);
+    }
+
+    @Override
+    public Flux<Device> getDeviceListByModel(String model) {
+        return Flux.defer(() -> {
+            Optional<List<Device>> cached = catalog.findByModel(model);
+            if (cached.isEmpty() && resilience.isOpen()) {
+                cached = catalog.findLastKnownByModel(model);
+            }
+            return cached.isPresent()
+                    ? Flux.fromIterable(cached.get())
+                    : findStoredDevicesByModel(model);
+        });
+    }
+
+    /**
+     * Answers from the local table only once the store has replayed the whole
+     * topic, since before that it may hold just the recently published part
+     * of a model; an unknown model is still looked up upstream.
+     */
+    private Flux<Device> findStoredDevicesByModel(String model) {
+        if (deviceStore == null || !deviceStore.isComplete()) {
+            return findDevicesByModel(model);
+        }
+        return Mono.fromCallable(() -> deviceRepository.findAllByModel(model))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(devices -> devices.isEmpty()
+                        ? findDevicesByModel(model)
+                        : Flux.fromIterable(devices));
+    }
+
+    private Flux<Device> findDevicesByModel(String model) {
+        if (!config.isModelFilterSupported()) {
+            return resilience.guard(webClient.get()
+                    .uri("/api/devices")
+                    .retrieve()
+                    .bodyToFlux(Device.class), upstreamConfig.getTimeouts().getFeed())
+                    .filter(device -> model.equals(device.getModel()));
+        }
+
+        int pageSize = config.getPageSize();
+        return Flux.range(0, Integer.MAX_VALUE)
+                .concatMap(page -> findDevicePageByModel(model, page, pageSize), 1)
+                .takeUntil(page -> page.size() < pageSize)
+                .flatMapIterable(page -> page);
+    }
+
+    private Mono<List<Device>> findDevicePageByModel(String model, int page, int pageSize) {
+        return resilience.guard(webClient.get()
+                .uri("/api/devices?model={model}&page={page}&size={size}", model, page, pageSize)
+                .retrieve()
+                .bodyToFlux(Device.class)
+                .collectList(), upstreamConfig.getTimeouts().getPage());
+    }
+}
@@ -0,0 +1,205 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.config.UploadConfig;
+import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.UploadJob;
+import com.scratchy.service.DeviceService;
+import com.scratchy.service.NotificationService;
+import com.scratchy.service.UploadJobService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class UploadJobServiceImpl implements UploadJobService, SchedulingConfigurer {
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    private final DeviceService deviceService;
+    private final NotificationService notificationService;
+    private final TaskExecutor uploadExecutor;
+    private final UploadConfig config;
+    private final MeterRegistry registry;
+    private final DistributionSummary uploadSize;
+
+    public UploadJobServiceImpl(DeviceService deviceService,
+                                NotificationService notificationService,
+                                @Qualifier("uploadExecutor") TaskExecutor uploadExecutor,
+                                UploadConfig config,
+                                MeterRegistry registry) {
+        this.deviceService = deviceService;
+        this.notificationService = notificationService;
+        this.uploadExecutor = uploadExecutor;
+        this.config = config;
+        this.registry = registry;
+        this.uploadSize = DistributionSummary.builder("device.upload.size")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public UploadJob run(MultipartFile file, Principal principal) {
+        String userName = userName(principal);
+        Path path = createTempFile();
+        UploadJob job = new UploadJob(file.getOriginalFilename(), userName, store(file, path));
+        uploadSize.record(file.getSize());
+        jobs.put(job.getId(), job);
+        Exception failure = run(job, path, notificationService.resolveRecipient(principal));
+        if (failure instanceof ResponseStatusException) {
+            throw (ResponseStatusException) failure;
+        }
+        if (failure != null) {
+            throw new RuntimeException("During creating devices from an csv file an exception occurred: "
+                    + job.getError(), failure);
+        }
+        return job;
+    }
+
+    /**
+     * Queues the stored upload on the bounded upload executor, since the
+     * multipart part is gone once the request completes. An upload whose
+     * content is already in progress fails the job once it runs.
+     */
+    @Override
+    public UploadJob submit(MultipartFile file, Principal principal) {
+        String userName = userName(principal);
+        Path path = createTempFile();
+        UploadJob job = new UploadJob(file.getOriginalFilename(), userName, store(file, path));
+        uploadSize.record(file.getSize());
+
+        String recipient = notificationService.resolveRecipient(principal);
+        jobs.put(job.getId(), job);
+        try {
+            uploadExecutor.execute(() -> run(job, path, recipient));
+        } catch (TaskRejectedException exception) {
+            jobs.remove(job.getId());
+            deleteQuietly(path);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many uploads in progress, try again later", exception);
+        }
+
+        return job;
+    }
+
+    @Override
+    public Optional<UploadJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::removeExpiredJobs, config.getJobCleanupInterval().toMillis());
+    }
+
+    public void removeExpiredJobs() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(config.getJobRetention());
+        jobs.values().removeIf(job -> job.isFinished()
+                && job.getFinishedAt().isBefore(expiredBefore));
+    }
+
+    /**
+     * Runs the job to its end and returns why it failed, or null.
+     */
+    private Exception run(UploadJob job, Path path, String recipient) {
+        log.info("Starting upload job " + job.getId() + " for " + job.getFileName());
+        Timer.Sample sample = Timer.start();
+        job.start();
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            DeviceFileDto fileDto = deviceService.createDevicesFromCsv(inputStream, job);
+            job.complete(fileDto);
+            if (!job.isDuplicate()) {
+                notificationService.notifyUploadCompleted(recipient, fileDto);
+            }
+            return null;
+        } catch (Exception exception) {
+            log.error("Upload job " + job.getId() + " failed", exception);
+            job.fail(exception);
+            return exception;
+        } finally {
+            String result = job.isDuplicate() ? "duplicate" : job.getStatus().name().toLowerCase();
+            sample.stop(Timer.builder("device.upload.duration")
+                    .tag("result", result)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            deleteQuietly(path);
+        }
+    }
+
+    /**
+     * Resolved before anything is spooled to disk, so a request that got
+     * past security without a user leaves no temporary file behind.
+     */
+    private static String userName(Principal principal) {
+        if (principal == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Uploading devices requires an authenticated user");
+        }
+        return principal.getName();
+    }
+
+    private static Path createTempFile() {
+        try {
+            return Files.createTempFile("upload-", ".csv");
+        } catch (IOException exception) {
+            throw new RuntimeException("During storing an csv file an exception occurred",
+                    exception);
+        }
+    }
+
+    /**
+     * Copies the upload to {@code path} and returns the hex SHA-256 of its
+     * content, computed on the same pass; {@code path} is deleted if the
+     * copy fails in any way.
+     */
+    private static String store(MultipartFile file, Path path) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException exception) {
+            deleteQuietly(path);
+            throw new RuntimeException("During storing an csv file an exception occurred",
+                    exception);
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException exception) {
+            log.warn("Could not delete temporary upload " + path, exception);
+        }
+    }
+}
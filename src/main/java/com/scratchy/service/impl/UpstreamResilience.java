@@ -0,0 +1,118 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.config.UpstreamConfig;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Guards upstream calls with, from the inside out, a timeout, a bulkhead
+ * capping concurrent calls, a circuit breaker and jittered retries. 4xx
+ * responses are answers, not failures: they are neither retried nor
+ * counted by the breaker.
+ */
+public class UpstreamResilience {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Retry retry;
+
+    public UpstreamResilience(UpstreamConfig config) {
+        this.circuitBreaker = CircuitBreaker.of("device-upstream", CircuitBreakerConfig.custom()
+                .failureRateThreshold(config.getCircuitFailureRateThreshold())
+                .slidingWindowSize(config.getCircuitSlidingWindowSize())
+                .minimumNumberOfCalls(config.getCircuitMinimumCalls())
+                .waitDurationInOpenState(config.getCircuitOpenDuration())
+                .permittedNumberOfCallsInHalfOpenState(config.getCircuitHalfOpenCalls())
+                .recordException(exception -> !isClientError(exception))
+                .build());
+        this.bulkhead = Bulkhead.of("device-upstream", BulkheadConfig.custom()
+                .maxConcurrentCalls(config.getBulkheadMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        this.retry = Retry.backoff(config.getRetryMaxAttempts(), config.getRetryBackoff())
+                .maxBackoff(config.getRetryMaxBackoff())
+                .jitter(0.5)
+                .filter(UpstreamResilience::isRetryable)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public boolean isOpen() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN
+                || circuitBreaker.getState() == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    public <T> Mono<T> guard(Mono<T> call, Duration timeout) {
+        return call.timeout(timeout)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .retryWhen(retry);
+    }
+
+    /**
+     * Guards a streamed response without retrying it, since devices may
+     * already have been emitted; {@code timeout} applies between devices.
+     */
+    public <T> Flux<T> guard(Flux<T> call, Duration timeout) {
+        return call.timeout(timeout)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /**
+     * Maps a failed upstream call to the status the edge answers with.
+     */
+    public static HttpStatus statusOf(Throwable exception) {
+        if (exception instanceof WebClientResponseException) {
+            HttpStatus status = HttpStatus.resolve(
+                    ((WebClientResponseException) exception).getRawStatusCode());
+            return status != null ? status : HttpStatus.BAD_GATEWAY;
+        }
+        if (exception instanceof CallNotPermittedException
+                || exception instanceof BulkheadFullException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        if (exception instanceof TimeoutException) {
+            return HttpStatus.GATEWAY_TIMEOUT;
+        }
+        return HttpStatus.BAD_GATEWAY;
+    }
+
+    private static boolean isClientError(Throwable exception) {
+        if (!(exception instanceof WebClientResponseException)) {
+            return false;
+        }
+        int status = ((WebClientResponseException) exception).getRawStatusCode();
+        return status >= 400 && status < 500;
+    }
+
+    private static boolean isRetryable(Throwable exception) {
+        if (exception instanceof WebClientResponseException) {
+            return ((WebClientResponseException) exception).getRawStatusCode() >= 500;
+        }
+        return exception instanceof TimeoutException
+                || exception instanceof WebClientRequestException;
+    }
+}
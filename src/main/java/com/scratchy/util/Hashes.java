@@ -0,0 +1,23 @@
+package com.scratchy.util;
+
+/**
+ * Non-cryptographic hashes for change detection, where speed matters more
+ * than resistance to crafted collisions.
+ */
+public final class Hashes {
+
+    private Hashes() {
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units.
+     */
+    public static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < value.length(); index++) {
+            hash ^= value.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
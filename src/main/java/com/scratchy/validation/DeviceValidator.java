@@ -0,0 +1,81 @@
+package com.scratchy.validation;
+
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceValidationError;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Checks uploaded rows against the constraints declared on {@link Device}
+ * with precompiled patterns, and rejects serial numbers seen earlier in the
+ * same upload. One instance is used per upload, fed chunk by chunk.
+ * <p>
+ * Serial numbers are remembered as they are, so a row is only ever rejected
+ * as a duplicate of an identical serial; this costs memory proportional to
+ * the number of distinct serials in the upload.
+ */
+public class DeviceValidator {
+
+    private static final Pattern SERIAL_NUMBER = Pattern.compile("^[a-zA-Z0-9-\\s]*$");
+    private static final Pattern MODEL = Pattern.compile("^[a-zA-Z0-9]*$");
+
+    private final int parallelThreshold;
+    private final Set<String> serialNumbers = new HashSet<>();
+    private long row;
+
+    /**
+     * @param parallelThreshold chunk size from which pattern checks are
+     *                          spread over the common fork-join pool
+     */
+    public DeviceValidator(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the valid devices of the chunk in their original order and
+     * reports every rejected row to {@code errors}.
+     */
+    public List<Device> validate(List<Device> chunk, Consumer<DeviceValidationError> errors) {
+        String[] messages = new String[chunk.size()];
+        IntStream indexes = IntStream.range(0, chunk.size());
+        if (chunk.size() >= parallelThreshold) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(index -> messages[index] = check(chunk.get(index)));
+
+        List<Device> valid = new ArrayList<>(chunk.size());
+        for (int index = 0; index < chunk.size(); index++) {
+            Device device = chunk.get(index);
+            row++;
+            String message = messages[index];
+            if (message == null && !serialNumbers.add(device.getId())) {
+                message = "Serial Number is duplicated";
+            }
+            if (message == null) {
+                valid.add(device);
+            } else {
+                errors.accept(new DeviceValidationError(row, device.getId(), message));
+            }
+        }
+        return valid;
+    }
+
+    private static String check(Device device) {
+        if (device.getId() == null || device.getId().isBlank()) {
+            return "Serial Number is missing";
+        }
+        if (!SERIAL_NUMBER.matcher(device.getId()).matches()) {
+            return "Serial Number is incorrect";
+        }
+        if (device.getModel() == null || !MODEL.matcher(device.getModel()).matches()) {
+            return "Model is incorrect";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+-- Moves device_file_dto from the file name to a generated id as its primary
+-- key and adds the upload-tracking columns, on PostgreSQL.
+--
+-- Run once against a database written by a version that keyed uploads by
+-- file name, before the first start of a version that keys them by id.
+-- ddl-auto=update cannot change a primary key, and it would add the
+-- primitive counters as NOT NULL columns without a default, which fails on
+-- a table that has rows. Indexes are left to ddl-auto=update.
+--
+-- Existing rows get ids in upload order and are marked COMPLETED: the old
+-- version only stored an upload once it was done. They have no content
+-- hash, so uploading the same file again publishes it again once.
+
+begin;
+
+-- increment by 50 to match the allocation size of @SequenceGenerator
+create sequence if not exists device_file_seq start with 1 increment by 50;
+
+alter table device_file_dto add column id int8;
+update device_file_dto
+set id = numbered.id
+from (select file_name,
+             row_number() over (order by date_of_uploading, file_name) as id
+      from device_file_dto) numbered
+where device_file_dto.file_name = numbered.file_name;
+alter table device_file_dto alter column id set not null;
+
+-- the name PostgreSQL gave the primary key Hibernate created on file_name
+alter table device_file_dto drop constraint device_file_dto_pkey;
+alter table device_file_dto add constraint device_file_dto_pkey primary key (id);
+alter table device_file_dto alter column file_name drop not null;
+
+-- the pooled optimizer hands out the 50 ids up to each value it draws
+select setval('device_file_seq', (select coalesce(max(id), 0) + 50 from device_file_dto));
+
+alter table device_file_dto add column if not exists content_hash varchar(64);
+alter table device_file_dto add column if not exists status varchar(255);
+alter table device_file_dto add column if not exists last_progress_at timestamp;
+alter table device_file_dto add column if not exists published_rows int8 not null default 0;
+alter table device_file_dto add column if not exists added_devices int8 not null default 0;
+alter table device_file_dto add column if not exists changed_devices int8 not null default 0;
+alter table device_file_dto add column if not exists unchanged_devices int8 not null default 0;
+alter table device_file_dto add column if not exists deleted_devices int8 not null default 0;
+
+update device_file_dto
+set status = 'COMPLETED',
+    last_progress_at = date_of_uploading
+where status is null;
+
+commit;
@@ -0,0 +1,74 @@
+package com.scratchy.cache;
+
+import com.scratchy.config.CatalogConfig;
+import com.scratchy.model.Device;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeviceCatalogTest {
+
+    private static final List<Device> FEED = List.of(
+            new Device("SN-1", "ModelA", null),
+            new Device("SN-2", "ModelA", null),
+            new Device("SN-3", "ModelB", null),
+            new Device("SN-4", "ModelC", null));
+
+    @Test
+    public void shouldServeEveryModelWhenTheFeedFits() {
+        DeviceCatalog catalog = catalog(10);
+
+        catalog.refresh(Flux.fromIterable(FEED));
+
+        assertEquals(Optional.of(FEED.subList(0, 2)), catalog.findByModel("ModelA"));
+        assertEquals(Optional.of(List.of()), catalog.findByModel("ModelD"));
+    }
+
+    @Test
+    public void shouldEvictWholeModelsAndKeepServingTheOthers() {
+        DeviceCatalog catalog = catalog(2);
+
+        catalog.refresh(Flux.fromIterable(FEED));
+
+        // ModelA, the largest of the models never requested, went first
+        assertTrue(catalog.findByModel("ModelA").isEmpty());
+        assertTrue(catalog.findBySerialNumber("SN-1").isEmpty());
+        assertEquals(Optional.of(List.of(FEED.get(2))), catalog.findByModel("ModelB"));
+        assertEquals(Optional.of(List.of(FEED.get(3))), catalog.findByModel("ModelC"));
+        assertEquals(Optional.of(FEED.get(3)), catalog.findBySerialNumber("SN-4"));
+    }
+
+    @Test
+    public void shouldEvictTheLeastRecentlyRequestedModel() {
+        CatalogConfig config = config(4);
+        DeviceCatalog catalog = new DeviceCatalog(config, new SimpleMeterRegistry());
+        catalog.refresh(Flux.fromIterable(FEED));
+        catalog.findByModel("ModelB");
+        catalog.findByModel("ModelA");
+        catalog.findByModel("ModelC");
+
+        config.setMaxSize(3);
+        catalog.refresh(Flux.fromIterable(FEED));
+
+        assertTrue(catalog.findByModel("ModelB").isEmpty());
+        assertEquals(Optional.of(FEED.subList(0, 2)), catalog.findByModel("ModelA"));
+        assertTrue(catalog.findLastKnownByModel("ModelB").isEmpty());
+    }
+
+    private static DeviceCatalog catalog(int maxSize) {
+        return new DeviceCatalog(config(maxSize), new SimpleMeterRegistry());
+    }
+
+    private static CatalogConfig config(int maxSize) {
+        CatalogConfig config = new CatalogConfig();
+        config.setEnabled(true);
+        config.setMaxSize(maxSize);
+        return config;
+    }
+}
@@ -0,0 +1,103 @@
+package com.scratchy.cache;
+
+import com.scratchy.config.ListingConfig;
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceListVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeviceListVersionsTest {
+
+    private final DeviceListVersions versions = new DeviceListVersions(new ListingConfig());
+
+    @Test
+    public void shouldKeepVersionOfUnchangedDevices() {
+        DeviceListVersion first = versions.record("ModelA", List.of(device("SN-1", "first")));
+        DeviceListVersion second = versions.record("ModelA", List.of(device("SN-1", "first")));
+        DeviceListVersion changed = versions.record("ModelA", List.of(device("SN-1", "changed")));
+
+        assertEquals(first.getETag(), second.getETag());
+        assertEquals(first.getLastModified(), second.getLastModified());
+        assertNotEquals(first.getETag(), changed.getETag());
+        assertTrue(first.getETag().startsWith("W/\""));
+    }
+
+    @Test
+    public void shouldVersionStreamedDevicesLikeListedOnes() {
+        DeviceListVersions.Digest digest = new DeviceListVersions.Digest();
+        digest.add(device("SN-1", "first"));
+        digest.add(device("SN-2", "second"));
+
+        DeviceListVersion streamed = versions.record("ModelA", digest);
+        DeviceListVersion listed = versions.record("ModelA",
+                List.of(device("SN-1", "first"), device("SN-2", "second")));
+
+        assertEquals(streamed.getETag(), listed.getETag());
+    }
+
+    @Test
+    public void shouldTreatRequestWithValidatorsAsConditional() {
+        HttpHeaders request = new HttpHeaders();
+        assertFalse(DeviceListVersions.isConditional(request));
+
+        request.setIfModifiedSince(0);
+        assertTrue(DeviceListVersions.isConditional(request));
+    }
+
+    @Test
+    public void shouldMatchIfNoneMatchBeforeIfModifiedSince() {
+        DeviceListVersion version = versions.record("ModelA", List.of(device("SN-1", "first")));
+        HttpHeaders request = new HttpHeaders();
+        request.setIfModifiedSince(version.getLastModified().toEpochMilli());
+        assertTrue(DeviceListVersions.isNotModified(version, request));
+
+        request.setIfNoneMatch("\"other\"");
+        assertFalse(DeviceListVersions.isNotModified(version, request));
+
+        request.setIfNoneMatch(version.getETag().substring(2));
+        assertTrue(DeviceListVersions.isNotModified(version, request));
+    }
+
+    @Test
+    public void shouldForgetVersionsAfterTtl() throws InterruptedException {
+        ListingConfig config = new ListingConfig();
+        config.setVersionTtl(Duration.ZERO);
+        DeviceListVersions expiring = new DeviceListVersions(config);
+
+        versions.record("ModelA", List.of());
+        expiring.record("ModelA", List.of());
+        Thread.sleep(5);
+
+        assertTrue(versions.findRecent("ModelA").isPresent());
+        assertTrue(expiring.findRecent("ModelA").isEmpty());
+        assertTrue(versions.findRecent("ModelB").isEmpty());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyRequestedModel() {
+        ListingConfig config = new ListingConfig();
+        config.setMaxModels(2);
+        DeviceListVersions bounded = new DeviceListVersions(config);
+
+        bounded.record("ModelA", List.of());
+        bounded.record("ModelB", List.of());
+        bounded.findRecent("ModelA");
+        bounded.record("ModelC", List.of());
+
+        assertTrue(bounded.findRecent("ModelA").isPresent());
+        assertTrue(bounded.findRecent("ModelB").isEmpty());
+        assertTrue(bounded.findRecent("ModelC").isPresent());
+    }
+
+    private static Device device(String serialNumber, String description) {
+        return new Device(serialNumber, "ModelA", description);
+    }
+}
@@ -0,0 +1,44 @@
+package com.scratchy.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scratchy.model.Device;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DeviceCodecTest {
+
+    private final List<Device> devices = List.of(
+            new Device("SN-1", "ModelA", "first"),
+            new Device("SN-2", "ModelB", null),
+            new Device("SN-3", "ModelC", "Ger\u00e4t mit Umlaut"));
+
+    @Test
+    public void shouldRoundTripBinaryPayloads() {
+        BinaryDeviceCodec codec = new BinaryDeviceCodec();
+
+        assertEquals(devices, codec.decode(codec.encodeAll(devices)));
+        assertEquals(List.of(devices.get(1)), codec.decode(codec.encode(devices.get(1))));
+    }
+
+    @Test
+    public void shouldRoundTripJsonPayloads() {
+        JsonDeviceCodec codec = new JsonDeviceCodec(new ObjectMapper());
+
+        assertEquals(devices, codec.decode(codec.encodeAll(devices)));
+        assertEquals(List.of(devices.get(0)), codec.decode(codec.encode(devices.get(0))));
+    }
+
+    @Test
+    public void shouldRejectTruncatedBinaryPayload() {
+        BinaryDeviceCodec codec = new BinaryDeviceCodec();
+        byte[] payload = codec.encodeAll(devices);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(Arrays.copyOf(payload, payload.length - 1)));
+    }
+}
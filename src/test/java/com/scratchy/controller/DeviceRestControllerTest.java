@@ -0,0 +1,81 @@
+package com.scratchy.controller;
+
+import com.scratchy.cache.DeviceListVersions;
+import com.scratchy.config.ListingConfig;
+import com.scratchy.config.UploadConfig;
+import com.scratchy.model.Device;
+import com.scratchy.service.ReactiveDeviceService;
+import com.scratchy.service.UploadJobService;
+import com.scratchy.service.impl.DeviceServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeviceRestControllerTest {
+
+    private static final String MODEL = "ModelA";
+
+    private final ReactiveDeviceService reactiveService = mock(ReactiveDeviceService.class);
+    private final DeviceRestController controller = new DeviceRestController(
+            new DeviceServiceImpl(new UploadConfig(), new SimpleMeterRegistry()), reactiveService,
+            mock(UploadJobService.class), new DeviceListVersions(new ListingConfig()));
+
+    @Test
+    public void shouldNotSendValidatorOfAnotherListingWithStreamedCsv() throws IOException {
+        List<Device> first = List.of(new Device("SN-1", MODEL, "first"));
+        List<Device> second = List.of(new Device("SN-1", MODEL, "second"));
+        when(reactiveService.getDeviceListByModel(MODEL))
+                .thenReturn(Flux.fromIterable(first), Flux.fromIterable(second),
+                        Flux.fromIterable(second));
+
+        ResponseEntity<StreamingResponseBody> firstResponse = getCsv(new HttpHeaders());
+        String firstBody = render(firstResponse);
+        ResponseEntity<StreamingResponseBody> secondResponse = getCsv(new HttpHeaders());
+        String secondBody = render(secondResponse);
+
+        assertNotEquals(firstBody, secondBody);
+        assertNull(firstResponse.getHeaders().getETag());
+        assertNull(secondResponse.getHeaders().getETag());
+
+        // a client holding the first listing gets the second with its own validator
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(eTagOf(first));
+        ResponseEntity<StreamingResponseBody> thirdResponse = getCsv(conditional);
+
+        assertEquals(HttpStatus.OK, thirdResponse.getStatusCode());
+        assertEquals(eTagOf(second), thirdResponse.getHeaders().getETag());
+        assertEquals(secondBody, render(thirdResponse));
+
+        conditional.setIfNoneMatch(eTagOf(second));
+        assertEquals(HttpStatus.NOT_MODIFIED, getCsv(conditional).getStatusCode());
+    }
+
+    private ResponseEntity<StreamingResponseBody> getCsv(HttpHeaders headers) {
+        return controller.getDeviceListByModelInCsv(MODEL, headers).block();
+    }
+
+    private static String render(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String eTagOf(List<Device> devices) {
+        return new DeviceListVersions(new ListingConfig()).record(MODEL, devices).getETag();
+    }
+}
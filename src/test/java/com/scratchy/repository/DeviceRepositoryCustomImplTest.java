@@ -0,0 +1,59 @@
+package com.scratchy.repository;
+
+import com.scratchy.model.Device;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DeviceRepositoryCustomImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DeviceRepositoryCustomImpl repository;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:devices;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("create table device (id varchar(255) primary key, "
+                + "model varchar(255), description varchar(255))");
+        repository = new DeviceRepositoryCustomImpl(jdbcTemplate);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("drop table device");
+    }
+
+    @Test
+    public void shouldInsertNewDevicesAndOverwriteStoredOnes() {
+        repository.upsertAll(List.of(new Device("SN-1", "ModelA", "first")));
+
+        repository.upsertAll(List.of(new Device("SN-1", "ModelB", "moved"),
+                new Device("SN-2", "ModelA", null)));
+
+        assertEquals(List.of(new Device("SN-1", "ModelB", "moved"), new Device("SN-2", "ModelA", null)),
+                findAll());
+    }
+
+    @Test
+    public void shouldDeleteOnlyStoredDevices() {
+        repository.upsertAll(List.of(new Device("SN-1", "ModelA", null),
+                new Device("SN-2", "ModelA", null)));
+
+        repository.deleteAllByIds(List.of("SN-1", "SN-3"));
+
+        assertEquals(List.of(new Device("SN-2", "ModelA", null)), findAll());
+    }
+
+    private List<Device> findAll() {
+        return jdbcTemplate.query("select id, model, description from device order by id",
+                (resultSet, row) -> new Device(resultSet.getString(1), resultSet.getString(2),
+                        resultSet.getString(3)));
+    }
+}
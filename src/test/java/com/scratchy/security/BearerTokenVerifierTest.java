@@ -0,0 +1,102 @@
+package com.scratchy.security;
+
+import com.scratchy.config.TokenConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.adapters.springboot.KeycloakSpringBootProperties;
+import org.keycloak.adapters.springsecurity.token.KeycloakAuthenticationToken;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BearerTokenVerifierTest {
+
+    private static final String REALM = "SpringBootApp";
+    private static final String KEY_ID = "key-1";
+
+    private MockWebServer realm;
+    private RealmKeys keys;
+    private BearerTokenVerifier verifier;
+    private String issuer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        keys = new RealmKeys(KEY_ID);
+
+        realm = new MockWebServer();
+        realm.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(keys.certs()));
+        realm.start();
+
+        KeycloakSpringBootProperties keycloak = new KeycloakSpringBootProperties();
+        keycloak.setAuthServerUrl("http://localhost:" + realm.getPort() + "/auth");
+        keycloak.setRealm(REALM);
+        keycloak.setPrincipalAttribute("preferred_username");
+        issuer = keycloak.getAuthServerUrl() + "/realms/" + REALM;
+
+        TokenConfig config = new TokenConfig();
+        SigningKeys signingKeys = new SigningKeys(config, keycloak, WebClient.builder());
+        verifier = new BearerTokenVerifier(config, signingKeys, keycloak, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        realm.shutdown();
+    }
+
+    @Test
+    public void shouldMapRealmRolesAndCacheVerifiedTokens() throws Exception {
+        String token = keys.sign(claims(issuer, Instant.now().plusSeconds(300)));
+
+        KeycloakAuthenticationToken authentication = verifier.verify(token);
+
+        assertEquals("alice", authentication.getName());
+        assertEquals(Set.of("ROLE_user", "ROLE_admin"), authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toSet()));
+        assertSame(authentication, verifier.verify(token));
+        assertEquals(1, realm.getRequestCount());
+    }
+
+    @Test
+    public void shouldRejectForeignExpiredAndUnknownKeyTokens() throws Exception {
+        String foreign = keys.sign(claims("http://elsewhere/realms/" + REALM,
+                Instant.now().plusSeconds(300)));
+        String expired = keys.sign(claims(issuer, Instant.now().minusSeconds(1)));
+        String unknownKey = keys.sign(claims(issuer, Instant.now().plusSeconds(300)), "key-2");
+
+        assertThrows(BadCredentialsException.class, () -> verifier.verify(foreign));
+        assertThrows(BadCredentialsException.class, () -> verifier.verify(expired));
+        assertThrows(BadCredentialsException.class, () -> verifier.verify(unknownKey));
+        assertThrows(BadCredentialsException.class, () -> verifier.verify("not-a-token"));
+    }
+
+    private Map<String, Object> claims(String issuer, Instant expiresAt) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("jti", "token-1");
+        claims.put("iss", issuer);
+        claims.put("sub", "subject-1");
+        claims.put("typ", "Bearer");
+        claims.put("iat", Instant.now().getEpochSecond());
+        claims.put("exp", expiresAt.getEpochSecond());
+        claims.put("preferred_username", "alice");
+        claims.put("realm_access", Map.of("roles", List.of("user", "admin")));
+        return claims;
+    }
+}
@@ -0,0 +1,91 @@
+package com.scratchy.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An RS256 signing key of a Keycloak realm: signs access tokens and renders
+ * the realm's certs endpoint, for the tests and the load test that need
+ * tokens the application verifies.
+ */
+public class RealmKeys {
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String keyId;
+    private final KeyPair keyPair;
+
+    public RealmKeys(String keyId) {
+        this.keyId = keyId;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.keyPair = generator.generateKeyPair();
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("RSA is not available", exception);
+        }
+    }
+
+    public String sign(Map<String, Object> claims) {
+        return sign(claims, keyId);
+    }
+
+    /**
+     * Signs {@code claims} with this key but names {@code keyId} in the
+     * header, so tokens of unknown keys can be made as well.
+     */
+    public String sign(Map<String, Object> claims, String keyId) {
+        try {
+            String signingInput = encode(Map.of("alg", "RS256", "typ", "JWT", "kid", keyId))
+                    + "." + encode(claims);
+            Signature signature = Signature.getInstance("SHA256withRSA");
+            signature.initSign(keyPair.getPrivate());
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64_URL.encodeToString(signature.sign());
+        } catch (JsonProcessingException | GeneralSecurityException exception) {
+            throw new IllegalStateException("During signing a token something went wrong", exception);
+        }
+    }
+
+    /**
+     * JSON Web Key Set with the public half of this key.
+     */
+    public String certs() {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Map<String, Object> key = new LinkedHashMap<>();
+        key.put("kid", keyId);
+        key.put("kty", "RSA");
+        key.put("alg", "RS256");
+        key.put("use", "sig");
+        key.put("n", BASE64_URL.encodeToString(unsigned(publicKey.getModulus())));
+        key.put("e", BASE64_URL.encodeToString(unsigned(publicKey.getPublicExponent())));
+        try {
+            return objectMapper.writeValueAsString(Map.of("keys", List.of(key)));
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private String encode(Object value) throws JsonProcessingException {
+        return BASE64_URL.encodeToString(objectMapper.writeValueAsBytes(value));
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+}
@@ -0,0 +1,284 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.config.UploadConfig;
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceFileDto;
+import com.scratchy.model.UploadJob;
+import com.scratchy.repository.DeviceFileRepository;
+import com.scratchy.repository.DeviceFingerprintRepository;
+import com.scratchy.repository.DeviceFingerprintRepositoryCustomImpl;
+import com.scratchy.service.DevicePublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DeviceServiceImplTest {
+
+    private UploadConfig uploadConfig;
+    private DeviceFileRepository repository;
+    private JdbcTemplate jdbcTemplate;
+    private StubPublisher publisher;
+    private List<String> savedRecords;
+    private DeviceServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        uploadConfig = new UploadConfig();
+        uploadConfig.setChunkSize(2);
+        uploadConfig.setMaxInFlightChunks(2);
+        uploadConfig.setCheckpointRows(Integer.MAX_VALUE);
+
+        publisher = new StubPublisher();
+        // records status, resume offset and acknowledged chunks at the time of each save
+        savedRecords = Collections.synchronizedList(new ArrayList<>());
+        Map<String, DeviceFileDto> files = new ConcurrentHashMap<>();
+        repository = mock(DeviceFileRepository.class);
+        when(repository.findByContentHash(any())).thenAnswer(invocation ->
+                Optional.ofNullable(files.get(invocation.<String>getArgument(0))));
+        when(repository.save(any())).thenAnswer(invocation -> {
+            DeviceFileDto fileDto = invocation.getArgument(0);
+            if (fileDto.getId() == null) {
+                fileDto.setId(files.size() + 1L);
+                files.put(fileDto.getContentHash(), fileDto);
+            }
+            savedRecords.add(fileDto.getStatus() + ":" + fileDto.getPublishedRows() + ":"
+                    + publisher.acknowledged.get());
+            return fileDto;
+        });
+        when(repository.claim(any(), any())).thenReturn(true);
+
+        service = new DeviceServiceImpl(uploadConfig, new SimpleMeterRegistry());
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:fingerprints;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("create table device_fingerprint (id varchar(255) primary key, "
+                + "fingerprint bigint not null, last_upload_id bigint)");
+
+        service.setRepository(repository);
+        service.setFingerprintRepository(mock(DeviceFingerprintRepository.class,
+                delegatesTo(new DeviceFingerprintRepositoryCustomImpl(jdbcTemplate))));
+        service.setPublisher(publisher);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("drop table device_fingerprint");
+    }
+
+    @Test
+    public void shouldKeepAtMostMaxInFlightChunksUnacknowledged() {
+        UploadJob job = job();
+
+        service.createDevicesFromCsv(csv(10), job);
+
+        assertEquals(5, publisher.published.size());
+        assertEquals(2, publisher.maxOutstanding.get());
+        assertEquals(10, job.getRecordsPublished());
+    }
+
+    @Test
+    public void shouldWriteUploadRecordOnlyAfterLastAcknowledgement() {
+        service.createDevicesFromCsv(csv(10), job());
+
+        assertEquals(List.of("IN_PROGRESS:0:0", "COMPLETED:10:5"), savedRecords);
+    }
+
+    @Test
+    public void shouldNotMoveResumeOffsetPastFailedChunk() {
+        publisher.failing = Set.of("SN-3");
+        UploadJob job = job();
+
+        assertThrows(RuntimeException.class, () -> service.createDevicesFromCsv(csv(10), job));
+
+        assertEquals(2, job.getRecordsFailed());
+        assertEquals(8, job.getRecordsPublished());
+        assertEquals(List.of("IN_PROGRESS:0:0", "FAILED:2:5"), savedRecords);
+    }
+
+    @Test
+    public void shouldRejectUploadWhileSameContentIsInProgressElsewhere() {
+        publisher.failing = Set.of("SN-3");
+        assertThrows(RuntimeException.class, () -> service.createDevicesFromCsv(csv(10), job()));
+        publisher.published.clear();
+        when(repository.claim(any(), any())).thenReturn(false);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> service.createDevicesFromCsv(csv(10), job()));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals(List.of(), publisher.published);
+    }
+
+    @Test
+    public void shouldPublishOnlyAddedAndChangedDevicesInDeltaMode() {
+        uploadConfig.setDelta(true);
+        service.createDevicesFromCsv(csv("SN-1,ModelA,first", "SN-2,ModelA,second",
+                "SN-3,ModelA,third"), job("first"));
+        publisher.published.clear();
+
+        DeviceFileDto fileDto = service.createDevicesFromCsv(csv("SN-1,ModelA,first",
+                "SN-2,ModelB,second", "SN-4,ModelA,fourth"), job("second"));
+
+        assertEquals(List.of(new Device("SN-2", "ModelB", "second"),
+                new Device("SN-4", "ModelA", "fourth")), publishedDevices());
+        assertEquals(1, fileDto.getAddedDevices());
+        assertEquals(1, fileDto.getChangedDevices());
+        assertEquals(1, fileDto.getUnchangedDevices());
+        assertEquals(0, fileDto.getDeletedDevices());
+    }
+
+    @Test
+    public void shouldNotStoreFingerprintsOfFailedChunk() {
+        uploadConfig.setDelta(true);
+        publisher.failing = Set.of("SN-3");
+
+        assertThrows(RuntimeException.class, () -> service.createDevicesFromCsv(csv(10), job()));
+
+        assertEquals(Set.of("SN-1", "SN-2", "SN-5", "SN-6", "SN-7", "SN-8", "SN-9", "SN-10"),
+                fingerprintedSerialNumbers());
+    }
+
+    @Test
+    public void shouldPublishOnlyFailedChunkWhenResumingInDeltaMode() {
+        uploadConfig.setDelta(true);
+        publisher.failing = Set.of("SN-3");
+        assertThrows(RuntimeException.class, () -> service.createDevicesFromCsv(csv(10), job()));
+        publisher.failing = Set.of();
+        publisher.published.clear();
+
+        UploadJob job = job();
+        DeviceFileDto fileDto = service.createDevicesFromCsv(csv(10), job);
+
+        assertEquals(2, job.getResumedFrom());
+        assertEquals(List.of(new Device("SN-3", "ModelA", "description"),
+                new Device("SN-4", "ModelA", "description")), publishedDevices());
+        assertEquals(2, fileDto.getAddedDevices());
+        assertEquals(0, fileDto.getChangedDevices());
+        assertEquals(6, fileDto.getUnchangedDevices());
+        assertEquals(10, fingerprintedSerialNumbers().size());
+    }
+
+    @Test
+    public void shouldDeleteDevicesMissingFromUploadButNotInvalidOnes() {
+        uploadConfig.setDelta(true);
+        uploadConfig.setDeleteMissing(true);
+        service.createDevicesFromCsv(csv(4), job("first"));
+
+        DeviceFileDto fileDto = service.createDevicesFromCsv(csv("SN-1,ModelA,description",
+                "SN-3,Model A,typo"), job("second"));
+
+        assertEquals(List.of(List.of("SN-2", "SN-4")), publisher.deletions);
+        assertEquals(2, fileDto.getDeletedDevices());
+        assertEquals(1, fileDto.getUnchangedDevices());
+        assertEquals(Set.of("SN-1", "SN-3"), fingerprintedSerialNumbers());
+    }
+
+    @Test
+    public void shouldNotDeleteDevicesWhenChunksFailed() {
+        uploadConfig.setDelta(true);
+        uploadConfig.setDeleteMissing(true);
+        service.createDevicesFromCsv(csv(4), job("first"));
+        publisher.failing = Set.of("SN-1");
+
+        assertThrows(RuntimeException.class, () -> service.createDevicesFromCsv(
+                csv("SN-1,ModelB,changed"), job("second")));
+
+        assertEquals(List.of(), publisher.deletions);
+        assertEquals(Set.of("SN-1", "SN-2", "SN-3", "SN-4"), fingerprintedSerialNumbers());
+    }
+
+    private List<Device> publishedDevices() {
+        List<Device> devices = new ArrayList<>();
+        publisher.published.forEach(devices::addAll);
+        return devices;
+    }
+
+    private Set<String> fingerprintedSerialNumbers() {
+        return Set.copyOf(jdbcTemplate.queryForList("select id from device_fingerprint",
+                String.class));
+    }
+
+    static InputStream csv(int rows) {
+        StringBuilder csv = new StringBuilder("id,model,description\n");
+        for (int row = 1; row <= rows; row++) {
+            csv.append("SN-").append(row).append(",ModelA,description\n");
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static InputStream csv(String... rows) {
+        String csv = "id,model,description\n" + String.join("\n", rows) + "\n";
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static UploadJob job() {
+        return job("hash");
+    }
+
+    static UploadJob job(String contentHash) {
+        return new UploadJob("devices.csv", "user", contentHash);
+    }
+
+    /**
+     * Acknowledges every chunk after a short delay, so later chunks pile up
+     * behind it, and fails the chunks starting with one of {@code failing}.
+     */
+    static class StubPublisher implements DevicePublisher {
+
+        final List<List<Device>> published = Collections.synchronizedList(new ArrayList<>());
+        final List<List<String>> deletions = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicInteger maxOutstanding = new AtomicInteger();
+        final AtomicInteger acknowledged = new AtomicInteger();
+        volatile Set<String> failing = Set.of();
+
+        @Override
+        public CompletableFuture<Void> publish(List<Device> devices) {
+            published.add(List.copyOf(devices));
+            maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+            boolean fails = failing.contains(devices.get(0).getId());
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS).execute(() -> {
+                outstanding.decrementAndGet();
+                acknowledged.incrementAndGet();
+                if (fails) {
+                    future.completeExceptionally(new IllegalStateException("broker unavailable"));
+                } else {
+                    future.complete(null);
+                }
+            });
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<Void> publishDeletions(List<String> serialNumbers) {
+            deletions.add(List.copyOf(serialNumbers));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.scratchy.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scratchy.codec.DeviceCodec;
+import com.scratchy.codec.JsonDeviceCodec;
+import com.scratchy.config.DeviceStoreConfig;
+import com.scratchy.config.KafkaTopicConfig;
+import com.scratchy.model.Device;
+import com.scratchy.repository.DeviceRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.SeekToCurrentBatchErrorHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeviceStoreListenerTest {
+
+    private static final String TOPIC = "device-topic";
+    private static final TopicPartition FIRST = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition SECOND = new TopicPartition(TOPIC, 1);
+
+    private final JsonDeviceCodec codec = new JsonDeviceCodec(new ObjectMapper());
+    private DeviceRepository repository;
+    private MockConsumer<String, byte[]> consumer;
+    private DeviceStoreListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        repository = mock(DeviceRepository.class);
+        listener = new DeviceStoreListener(repository, new ObjectMapper(), new SimpleMeterRegistry());
+
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(TOPIC, List.of(
+                new PartitionInfo(TOPIC, 0, null, null, null),
+                new PartitionInfo(TOPIC, 1, null, null, null)));
+        consumer.updateBeginningOffsets(Map.of(FIRST, 0L, SECOND, 0L));
+        consumer.updateEndOffsets(Map.of(FIRST, 2L, SECOND, 0L));
+        consumer.assign(List.of(FIRST, SECOND));
+    }
+
+    @Test
+    public void shouldStoreTheLatestVersionOfEachDeviceOnce() {
+        Device first = new Device("SN-1", "ModelA", "first");
+        Device updated = new Device("SN-1", "ModelA", "updated");
+
+        listener.consume(List.of(record(0, first), record(1, updated)), consumer);
+
+        verify(repository).upsertAll(List.of(updated));
+    }
+
+    @Test
+    public void shouldDeleteDevicesOnTombstones() {
+        Device kept = new Device("SN-2", "ModelA", "kept");
+        ConsumerRecord<String, byte[]> tombstone = new ConsumerRecord<>(TOPIC, 0, 2, "SN-1", null);
+
+        listener.consume(List.of(record(0, new Device("SN-1", "ModelA", "first")),
+                record(1, kept), tombstone), consumer);
+
+        verify(repository).upsertAll(List.of(kept));
+        verify(repository).deleteAllByIds(List.of("SN-1"));
+    }
+
+    @Test
+    public void shouldRedeliverBatchWhoseWriteFailed() {
+        DeviceStoreConfig config = new DeviceStoreConfig();
+        config.setRetryInterval(Duration.ZERO);
+        SeekToCurrentBatchErrorHandler errorHandler = new KafkaTopicConfig().deviceStoreErrorHandler(config);
+        Device first = new Device("SN-1", "ModelA", "first");
+        Device second = new Device("SN-2", "ModelA", "second");
+        List<ConsumerRecord<String, byte[]>> batch = List.of(record(0, first), record(1, second));
+        doThrow(new DataAccessResourceFailureException("database is down")).doNothing()
+                .when(repository).upsertAll(any());
+        consumer.seek(FIRST, 2);
+
+        RuntimeException failure = assertThrows(RuntimeException.class,
+                () -> listener.consume(batch, consumer));
+        assertThrows(KafkaException.class, () -> errorHandler.handle(failure,
+                new ConsumerRecords<>(Map.of(FIRST, batch)), consumer,
+                mock(MessageListenerContainer.class)));
+        assertEquals(0, consumer.position(FIRST));
+
+        listener.consume(batch, consumer);
+        verify(repository, times(2)).upsertAll(List.of(first, second));
+    }
+
+    @Test
+    public void shouldSkipRecordsOfUnknownFormat() {
+        Device device = new Device("SN-1", "ModelA", "first");
+        ConsumerRecord<String, byte[]> unknown = record(0, device);
+        unknown.headers().remove(DeviceCodec.FORMAT_HEADER)
+                .add(DeviceCodec.FORMAT_HEADER, "xml".getBytes(StandardCharsets.UTF_8));
+
+        listener.consume(List.of(unknown, record(1, device)), consumer);
+
+        verify(repository).upsertAll(List.of(device));
+    }
+
+    @Test
+    public void shouldBeCompleteOnceEveryPartitionIsReplayed() {
+        listener.onPartitionsAssigned(consumer, List.of(FIRST, SECOND));
+        assertFalse(listener.isComplete());
+
+        consumer.seek(FIRST, 1);
+        listener.consume(List.of(record(0, new Device("SN-1", "ModelA", null))), consumer);
+        assertFalse(listener.isComplete());
+
+        consumer.seek(FIRST, 2);
+        listener.consume(List.of(record(1, new Device("SN-2", "ModelA", null))), consumer);
+        assertTrue(listener.isComplete());
+    }
+
+    @Test
+    public void shouldBeCompleteWithoutBatchesWhenTheTopicIsEmpty() {
+        consumer.updateEndOffsets(Map.of(FIRST, 0L));
+
+        listener.onPartitionsAssigned(consumer, List.of(FIRST, SECOND));
+
+        assertTrue(listener.isComplete());
+    }
+
+    @Test
+    public void shouldResumeFromCommittedOffsetsWhenTheTableHoldsDevices() {
+        when(repository.count()).thenReturn(1L);
+        consumer.commitSync(Map.of(FIRST, new OffsetAndMetadata(1)));
+        consumer.updateBeginningOffsets(Map.of(FIRST, 1L));
+
+        listener.onPartitionsAssigned(consumer, List.of(FIRST, SECOND));
+        assertEquals(1, consumer.position(FIRST));
+
+        consumer.seek(FIRST, 2);
+        listener.consume(List.of(record(1, new Device("SN-2", "ModelA", null))), consumer);
+        assertTrue(listener.isComplete());
+    }
+
+    @Test
+    public void shouldRebuildAnEmptyTableFromTheEarliestOffset() {
+        consumer.commitSync(Map.of(FIRST, new OffsetAndMetadata(2)));
+
+        listener.onPartitionsAssigned(consumer, List.of(FIRST, SECOND));
+
+        assertEquals(0, consumer.position(FIRST));
+        assertFalse(listener.isComplete());
+    }
+
+    @Test
+    public void shouldNeverBeCompleteWhenOldRecordsWereDeleted() {
+        consumer.updateBeginningOffsets(Map.of(FIRST, 1L));
+        listener.onPartitionsAssigned(consumer, List.of(FIRST, SECOND));
+        consumer.seek(FIRST, 2);
+
+        listener.consume(List.of(record(1, new Device("SN-2", "ModelA", null))), consumer);
+
+        assertFalse(listener.isComplete());
+    }
+
+    private ConsumerRecord<String, byte[]> record(long offset, Device device) {
+        ConsumerRecord<String, byte[]> record = new ConsumerRecord<>(TOPIC, 0, offset,
+                ConsumerRecord.NO_TIMESTAMP, TimestampType.NO_TIMESTAMP_TYPE, 0L,
+                ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, device.getId(),
+                codec.encode(device));
+        record.headers().add(DeviceCodec.FORMAT_HEADER,
+                JsonDeviceCodec.FORMAT.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
@@ -0,0 +1,78 @@
+package com.scratchy.service.impl;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.scratchy.config.NotificationConfig;
+import com.scratchy.model.DeviceFileDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class NotificationServiceImplTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private NotificationConfig config;
+    private JavaMailSenderImpl emailSender;
+
+    @BeforeEach
+    public void setUp() {
+        config = new NotificationConfig();
+        config.setFrom("edge@test.mail");
+        config.setInitialBackoff(Duration.ZERO);
+
+        emailSender = new JavaMailSenderImpl();
+        emailSender.setHost("localhost");
+        emailSender.setPort(ServerSetupTest.SMTP.getPort());
+    }
+
+    @Test
+    public void shouldCoalesceNotificationsPerRecipientIntoDigest() throws Exception {
+        NotificationServiceImpl service = new NotificationServiceImpl(config, emailSender,
+                new SimpleMeterRegistry());
+
+        service.notifyUploadCompleted("user@test.mail", new DeviceFileDto("first.csv", 1, "user"));
+        service.notifyUploadCompleted("user@test.mail", new DeviceFileDto("second.csv", 2, "user"));
+        service.notifyUploadCompleted("admin@test.mail", new DeviceFileDto("third.csv", 3, "admin"));
+        service.flush();
+
+        MimeMessage[] messages = greenMail.getReceivedMessages();
+        assertEquals(2, messages.length);
+        assertEquals("2 CSV files were uploaded", messages[0].getSubject());
+        assertEquals("CSV was uploaded", messages[1].getSubject());
+    }
+
+    @Test
+    public void shouldRetryFailedDigestOnNextFlush() {
+        emailSender.setPort(ServerSetupTest.SMTP.getPort() + 1);
+        NotificationServiceImpl service = new NotificationServiceImpl(config, emailSender,
+                new SimpleMeterRegistry());
+
+        service.notifyUploadCompleted("user@test.mail", new DeviceFileDto("file.csv", 1, "user"));
+        service.flush();
+        assertEquals(0, greenMail.getReceivedMessages().length);
+
+        emailSender.setPort(ServerSetupTest.SMTP.getPort());
+        service.flush();
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void shouldSkipNotificationWithoutRecipient() {
+        NotificationServiceImpl service = new NotificationServiceImpl(config, emailSender,
+                new SimpleMeterRegistry());
+
+        service.notifyUploadCompleted(null, new DeviceFileDto("file.csv", 1, "user"));
+        service.flush();
+
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+}
@@ -0,0 +1,137 @@
+package com.scratchy.service.impl;
+
+import com.scratchy.cache.DeviceCatalog;
+import com.scratchy.config.CatalogConfig;
+import com.scratchy.config.EnvironmentConfig;
+import com.scratchy.config.UpstreamConfig;
+import com.scratchy.model.Device;
+import com.scratchy.repository.DeviceRepository;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ReactiveDeviceServiceImplTest {
+
+    private static final String DEVICE_JSON =
+            "{\"id\":\"SN-1\",\"model\":\"ModelA\",\"description\":\"first\"}";
+
+    private MockWebServer upstream;
+    private UpstreamConfig upstreamConfig;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        upstream = new MockWebServer();
+        upstream.start();
+
+        upstreamConfig = new UpstreamConfig();
+        upstreamConfig.setRetryMaxAttempts(2);
+        upstreamConfig.setRetryBackoff(Duration.ofMillis(10));
+        upstreamConfig.setRetryMaxBackoff(Duration.ofMillis(20));
+        upstreamConfig.setCircuitSlidingWindowSize(4);
+        upstreamConfig.setCircuitMinimumCalls(4);
+        upstreamConfig.setCircuitOpenDuration(Duration.ofMinutes(1));
+        upstreamConfig.getTimeouts().setDevice(Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        upstream.shutdown();
+    }
+
+    @Test
+    public void shouldRetryServerErrorsOfIdempotentLookups() {
+        upstream.enqueue(new MockResponse().setResponseCode(503));
+        upstream.enqueue(json(DEVICE_JSON));
+        ReactiveDeviceServiceImpl service = createService();
+
+        Device device = service.getDeviceBySerialNumber("SN-1").block();
+
+        assertEquals(new Device("SN-1", "ModelA", "first"), device);
+        assertEquals(2, upstream.getRequestCount());
+    }
+
+    @Test
+    public void shouldNotRetryOrCountNotFound() {
+        upstream.enqueue(new MockResponse().setResponseCode(404));
+        upstream.enqueue(new MockResponse().setResponseCode(400));
+        ReactiveDeviceServiceImpl service = createService();
+
+        assertNull(service.getDeviceBySerialNumber("SN-1").block());
+        assertThrows(WebClientResponseException.BadRequest.class,
+                () -> service.getDeviceBySerialNumber("SN-2").block());
+        assertEquals(2, upstream.getRequestCount());
+        assertEquals(0, service.getResilience().getCircuitBreaker().getMetrics()
+                .getNumberOfFailedCalls());
+    }
+
+    @Test
+    public void shouldTimeOutSlowUpstream() {
+        upstreamConfig.setRetryMaxAttempts(0);
+        upstream.enqueue(json(DEVICE_JSON).setHeadersDelay(1, TimeUnit.SECONDS));
+        ReactiveDeviceServiceImpl service = createService();
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> service.getDeviceBySerialNumber("SN-1").block());
+        assertTrue(exception.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    public void shouldServeLastKnownDeviceWhileCircuitIsOpen() {
+        upstreamConfig.setRetryMaxAttempts(0);
+        upstream.enqueue(json(DEVICE_JSON));
+        for (int index = 0; index < 3; index++) {
+            upstream.enqueue(new MockResponse().setResponseCode(500));
+        }
+        ReactiveDeviceServiceImpl service = createService();
+
+        service.getDeviceBySerialNumber("SN-1").block();
+        for (int index = 0; index < 3; index++) {
+            assertThrows(WebClientResponseException.InternalServerError.class,
+                    () -> service.getDeviceBySerialNumber("SN-2").block());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN,
+                service.getResilience().getCircuitBreaker().getState());
+        assertEquals(new Device("SN-1", "ModelA", "first"),
+                service.getDeviceBySerialNumber("SN-1").block());
+        assertThrows(CallNotPermittedException.class,
+                () -> service.getDeviceBySerialNumber("SN-2").block());
+        assertEquals(4, upstream.getRequestCount());
+    }
+
+    private ReactiveDeviceServiceImpl createService() {
+        EnvironmentConfig config = new EnvironmentConfig();
+        config.setUrl("http://localhost:");
+        config.setPort(String.valueOf(upstream.getPort()));
+
+        ReactiveDeviceServiceImpl service = new ReactiveDeviceServiceImpl(WebClient.builder(),
+                config, upstreamConfig);
+        service.setCatalog(new DeviceCatalog(new CatalogConfig(), new SimpleMeterRegistry()));
+        service.setDeviceRepository(mock(DeviceRepository.class));
+        return service;
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+}
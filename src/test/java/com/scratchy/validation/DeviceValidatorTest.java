@@ -0,0 +1,36 @@
+package com.scratchy.validation;
+
+import com.scratchy.model.Device;
+import com.scratchy.model.DeviceValidationError;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DeviceValidatorTest {
+
+    @Test
+    public void shouldReportInvalidAndDuplicatedRowsAcrossChunks() {
+        DeviceValidator validator = new DeviceValidator(2);
+        List<DeviceValidationError> errors = new ArrayList<>();
+
+        List<Device> first = validator.validate(List.of(
+                new Device("SN-1", "ModelA", "first"),
+                new Device("SN#2", "ModelA", "bad serial"),
+                new Device("SN-3", "Model A", "bad model")), errors::add);
+        List<Device> second = validator.validate(List.of(
+                new Device("SN-1", "ModelB", "duplicate"),
+                new Device("", "ModelB", "missing serial")), errors::add);
+
+        assertEquals(1, first.size());
+        assertEquals("SN-1", first.get(0).getId());
+        assertEquals(0, second.size());
+        assertEquals(List.of(
+                new DeviceValidationError(2, "SN#2", "Serial Number is incorrect"),
+                new DeviceValidationError(3, "SN-3", "Model is incorrect"),
+                new DeviceValidationError(4, "SN-1", "Serial Number is duplicated"),
+                new DeviceValidationError(5, "", "Serial Number is missing")), errors);
+    }
+}